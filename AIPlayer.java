@@ -1,13 +1,37 @@
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Represents an AI player in the game. The logic for making a move will be based
  * on AI algorithms such as minimax or heuristic-based decision-making.
+ *
+ * Besides the synchronous makeMove, which works on the live game, every AI can be asked for a move
+ * asynchronously with makeMoveAsync: it searches its own engine built from a GameState snapshot on
+ * another thread, so the caller (for example the Swing event thread) is never blocked, and the answer
+ * comes by the deadline at the latest. An AI runs one search at a time; a request made while an earlier
+ * one is still stopping waits for it, but is still answered by its own deadline.
+ *
+ * The AIs share one OpeningBook, read from the file named by the system property "reversi.book"
+ * (none by default) or set with setOpeningBook; bookMove looks a position up in it.
+ *
+ * Near the end of the game an AI can play perfectly: endgameMove solves positions with at most
+ * getEndgameEmpties() empty squares exactly with an EndgameSolver. The threshold is read from the system
+ * property "reversi.endgame.empties" (10 by default, about the most this solver finishes in well under a
+ * second with the special discs still in hand; run EndgameSolver.main to measure it) or set with setEndgameEmpties.
+ *
+ * Every AI records its makeMove times with recordMoveTime, and its book lookups and endgame solves,
+ * in EngineMetrics. Quick AIs start the clock with sampleMoveTime, which times only a sample of the moves.
  */
 public abstract class AIPlayer extends Player {
     public static void registerAllAIPlayers() {
         registerAIPlayerType("RandomAI", RandomAI.class);
         registerAIPlayerType("GreedyAI", GreedyAI.class);
+        registerAIPlayerType("MinimaxAI", MinimaxAI.class);
+        registerAIPlayerType("ParallelMinimaxAI", ParallelMinimaxAI.class);
+        registerAIPlayerType("MctsAI", MctsAI.class);
         // Add more AIPlayer subclasses here as needed
     }
     @Override
@@ -17,6 +41,30 @@ public abstract class AIPlayer extends Player {
 
     // Map of AI player types and their corresponding classes
     private static final Map<String, Class<? extends AIPlayer>> aiPlayerRegistry = new HashMap<>();
+    // Runs the searches of makeMoveAsync, on daemon threads so they never keep the program alive
+    private static final ExecutorService DEFAULT_EXECUTOR = Executors.newCachedThreadPool(daemonThreads("ai-move-"));
+    // Answers the requests whose search is still running at their deadline
+    private static final ScheduledThreadPoolExecutor DEADLINES = new ScheduledThreadPoolExecutor(1, daemonThreads("ai-deadline-"));
+    static {
+        DEADLINES.setRemoveOnCancelPolicy(true);
+    }
+    // The opening book shared by all AI players, mapped on first use; null if there is none
+    private static OpeningBook openingBook;
+    private static boolean openingBookLoaded;
+    // Default number of empty squares at or below which the endgame is solved exactly
+    private static final int DEFAULT_ENDGAME_EMPTIES = Integer.getInteger("reversi.endgame.empties", 10);
+    // Size of the endgame solver's transposition table, in MB
+    private static final int ENDGAME_TABLE_MB = 4;
+    // The endgame solver's own table (its exact scores must not mix with heuristic ones), one per thread
+    // and shared by every AI that moves on it, allocated on first use
+    private static final ThreadLocal<TranspositionTable> ENDGAME_TABLES =
+            ThreadLocal.withInitial(() -> new TranspositionTable(ENDGAME_TABLE_MB));
+
+    private int endgameEmpties = DEFAULT_ENDGAME_EMPTIES;
+    // The histogram of the makeMove times of this player's type, looked up on first use
+    private LatencyHistogram moveTimes;
+    // makeMove calls so far, to time one in EngineMetrics.SAMPLE_PERIOD
+    private int moveCalls;
 
     public AIPlayer(boolean isPlayerOne) {
         super(isPlayerOne);
@@ -45,4 +93,214 @@ public abstract class AIPlayer extends Player {
         return new ArrayList<>(aiPlayerRegistry.keySet());
     }
     public abstract Move makeMove(PlayableLogic gameStatus);
+
+    /**
+     * Asks for a move without blocking, running the search on the default executor (daemon threads).
+     * See makeMoveAsync(GameState, long, Executor).
+     *
+     * @param state The position to move in.
+     * @param deadlineNanos The System.nanoTime() value by which the move is needed.
+     * @return The future move; null if the player to move has no valid move.
+     */
+    public CompletableFuture<Move> makeMoveAsync(GameState state, long deadlineNanos) {
+        return makeMoveAsync(state, deadlineNanos, DEFAULT_EXECUTOR);
+    }
+
+    /**
+     * Asks for a move without blocking. The search runs on the executor, on a private engine built
+     * from the snapshot, so the live game can change meanwhile. The future completes with the search's
+     * move, or at the deadline with the best move the search has reported so far (the first valid move
+     * if it has reported none). Cancelling the future, or the deadline, stops the search as soon as it
+     * next checks its SearchControl. The discs of the returned move belong to this player.
+     *
+     * @param state The position to move in.
+     * @param deadlineNanos The System.nanoTime() value by which the move is needed.
+     * @param executor The executor to run the search on.
+     * @return The future move; null if the player to move has no valid move.
+     */
+    public CompletableFuture<Move> makeMoveAsync(GameState state, long deadlineNanos, Executor executor) {
+        CompletableFuture<Move> result = new CompletableFuture<>();
+        SearchControl control = new SearchControl(deadlineNanos);
+        ScheduledFuture<?> timeout = DEADLINES.schedule(() -> result.complete(toMove(state, fallbackMove(state, control))),
+                deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        // However the request ends (answered, timed out or cancelled), the search stops and the timer goes
+        result.whenComplete((move, failure) -> {
+            control.stop();
+            timeout.cancel(false);
+        });
+        try {
+            executor.execute(() -> {
+                if (result.isDone())
+                    return;  // Cancelled or timed out before the search started
+                try {
+                    int move;
+                    // A search cancelled just before may still be winding down; the searches share this player's state
+                    synchronized (this) {
+                        move = searchMove(state.newEngine(), control);
+                    }
+                    result.complete(toMove(state, move));
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    /**
+     * Searches a private engine for the move of makeMoveAsync. The search should check
+     * control.isStopped() now and then, and report its best move so far with control.offer().
+     * By default this calls the synchronous makeMove on the engine, which is fine for quick players.
+     *
+     * @param logic The engine, owned by this search.
+     * @param control The deadline and stop flag of the request.
+     * @return The encoded move (see SearchableLogic.encodeMove), or -1 if there is no valid move.
+     */
+    protected int searchMove(SearchableLogic logic, SearchControl control) {
+        Move move = makeMove(logic);
+        if (move == null)
+            return -1;
+        Position position = move.position();
+        return SearchableLogic.encodeMove(position.row() * logic.getBoardSize() + position.col(),
+                SearchableLogic.typeOf(move.disc()));
+    }
+
+    // Return the best move offered so far, or else the first valid square with a simple disc, or -1
+    private static int fallbackMove(GameState state, SearchControl control) {
+        int move = control.getBestMove();
+        if (move >= 0)
+            return move;
+        int[] moves = new int[state.getBoardSize() * state.getBoardSize()];
+        return state.validMoves(moves) == 0 ? -1 : SearchableLogic.encodeMove(moves[0], SearchableLogic.SIMPLE);
+    }
+
+    // Turn an encoded move into a Move with a disc of this player, or null for -1
+    private Move toMove(GameState state, int move) {
+        if (move < 0)
+            return null;
+        int square = SearchableLogic.moveSquare(move);
+        int boardSize = state.getBoardSize();
+        return new Move(SearchableLogic.createDisc(SearchableLogic.moveType(move), this),
+                Position.of(square / boardSize, square % boardSize), null);
+    }
+
+    /**
+     * Sets the opening book of all AI players, instead of the one named by "reversi.book".
+     *
+     * @param book The book, or null for none.
+     */
+    public static synchronized void setOpeningBook(OpeningBook book) {
+        openingBook = book;
+        openingBookLoaded = true;
+    }
+
+    /**
+     * Returns the opening book of all AI players, mapping the file named by the system property
+     * "reversi.book" on the first call. A book that cannot be read is reported once and not used,
+     * so the game goes on without it.
+     *
+     * @return The book, or null if there is none.
+     */
+    public static synchronized OpeningBook getOpeningBook() {
+        if (!openingBookLoaded) {
+            openingBookLoaded = true;
+            String file = System.getProperty("reversi.book");
+            if (file != null) {
+                try {
+                    openingBook = OpeningBook.open(Path.of(file));
+                } catch (IOException e) {
+                    System.err.println("Opening book not used: " + e);
+                }
+            }
+        }
+        return openingBook;
+    }
+
+    /**
+     * Looks up the current position of an engine in the opening book. The move found is checked against
+     * the engine (with makeMove and unmakeMove), so a key collision can never produce an invalid move.
+     *
+     * @param logic The engine.
+     * @return The encoded book move (see SearchableLogic.encodeMove), or -1 if the position is not in the book.
+     */
+    protected int bookMove(SearchableLogic logic) {
+        OpeningBook book = getOpeningBook();
+        if (book == null)
+            return -1;
+        int move = book.lookup(logic.getBoardSize(), logic.hashKey());
+        boolean valid = move >= 0 && logic.makeMove(SearchableLogic.moveSquare(move), SearchableLogic.moveType(move));
+        EngineMetrics.addBookProbe(valid);
+        if (!valid)
+            return -1;
+        logic.unmakeMove();
+        return move;
+    }
+
+    /**
+     * Sets the number of empty squares at or below which this AI solves the endgame exactly.
+     *
+     * @param empties The number of empty squares; 0 turns the endgame solver off.
+     */
+    public void setEndgameEmpties(int empties) {
+        endgameEmpties = empties;
+    }
+
+    // Return the number of empty squares at or below which this AI solves the endgame exactly
+    public int getEndgameEmpties() {
+        return endgameEmpties;
+    }
+
+    /**
+     * Solves the current position of an engine exactly when it has few enough empty squares
+     * (see setEndgameEmpties).
+     *
+     * @param logic The engine.
+     * @param deadlineNanos The System.nanoTime() value at which to give up.
+     * @param control The control of an asynchronous request, also checked; or null.
+     * @return The encoded move with the best final disc difference, or -1 if the position has too many
+     *         empty squares, has no valid move, or was not solved by the deadline.
+     */
+    protected int endgameMove(SearchableLogic logic, long deadlineNanos, SearchControl control) {
+        if (EndgameSolver.getEmpties(logic) > endgameEmpties)
+            return -1;
+        EndgameSolver solver = new EndgameSolver(logic, ENDGAME_TABLES.get());
+        boolean solved = solver.solve(deadlineNanos, control) != EndgameSolver.UNKNOWN;
+        EngineMetrics.addNodes(solver.getNodes());
+        return solved ? solver.getBestMove() : -1;
+    }
+
+    /**
+     * Starts the clock of a makeMove call that is too quick to time every time: one call in
+     * EngineMetrics.SAMPLE_PERIOD is timed, and the others are only counted by recordMoveTime.
+     *
+     * @return The value to pass to recordMoveTime.
+     */
+    protected long sampleMoveTime() {
+        return EngineMetrics.sample(++moveCalls);
+    }
+
+    /**
+     * Records a makeMove call in the metrics of this player's type (see EngineMetrics).
+     *
+     * @param startNanos The value EngineMetrics.start() or sampleMoveTime() returned when the call started.
+     */
+    protected void recordMoveTime(long startNanos) {
+        if (!EngineMetrics.ENABLED)
+            return;
+        if (moveTimes == null)
+            moveTimes = EngineMetrics.moveTimes(getClass().getSimpleName());
+        moveTimes.recordSince(startNanos);
+    }
+
+    // Return a factory of daemon threads named with the given prefix and a number
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
 }
\ No newline at end of file
@@ -0,0 +1,420 @@
+/**
+ * A negamax search with alpha-beta pruning over a SearchableLogic engine.
+ * The search walks the tree with makeMove/unmakeMove on the engine it is given, so the engine
+ * must not be used by anyone else while a search runs. Moves branch over the square and over
+ * the disc type (simple, bomb or unflippable) as long as the player has discs of that type left.
+ * All buffers are kept between searches, so a search allocates nothing once it has warmed up.
+ * An optional TranspositionTable stores the result of every searched position, so a position reached
+ * again by another move order is not searched twice, and its best move is tried first.
+ * Positions are scored with hand-tuned square values, or with a trained PatternEvaluator when one is set.
+ */
+public class AlphaBetaSearch {
+
+    // Deepest search, in plies
+    static final int MAX_DEPTH = 64;
+    // Larger than any score
+    static final int INFINITY = 1_000_000_000;
+    // Score of a finished game per disc of difference; larger than any evaluation
+    static final int WIN = 10_000;
+
+    // Positional values of the evaluation
+    private static final int CORNER = 60;
+    private static final int X_SQUARE = -25;
+    private static final int C_SQUARE = -10;
+    private static final int EDGE = 8;
+    private static final int UNFLIPPABLE_BONUS = 6;
+    private static final int MOBILITY = 5;
+    private static final int INVENTORY = 6;
+
+    // The engine the search runs on, and the transposition table (may be null)
+    private final SearchableLogic logic;
+    private final TranspositionTable table;
+    private final int boardSize;
+    // Positional value of every square, from the point of view of its owner
+    private final int[] squareValue;
+    // Move buffers per ply: the valid squares, and the moves expanded over the disc types
+    private final int[][] squares = new int[MAX_DEPTH + 1][];
+    private final int[][] moves = new int[MAX_DEPTH + 1][];
+    // Principal variation found by the current iteration (triangular table), and the one of the last iteration
+    private final int[][] pv = new int[MAX_DEPTH + 1][MAX_DEPTH + 1];
+    private final int[] pvLength = new int[MAX_DEPTH + 1];
+    private final int[] lastPv = new int[MAX_DEPTH + 1];
+    private int lastPvLength = 0;
+    // Search statistics and the time limit
+    private long nodes;
+    private long tableProbes;
+    private long tableHits;
+    private int bestScore;
+    private int completedDepth;
+    private long deadline;
+    private volatile boolean stopped;
+    // The control of an asynchronous move request: checked with the deadline and told every finished iteration
+    private SearchControl control;
+    private boolean offerMoves;
+    // The trained evaluation, or null for the hand-tuned one
+    private PatternEvaluator evaluator;
+
+    /**
+     * Constructs a search over the given engine, without a transposition table.
+     *
+     * @param logic The engine to search on; its current position is the root.
+     */
+    public AlphaBetaSearch(SearchableLogic logic) {
+        this(logic, null);
+    }
+
+    /**
+     * Constructs a search over the given engine.
+     *
+     * @param logic The engine to search on; its current position is the root.
+     * @param table The transposition table to use, or null for none.
+     */
+    public AlphaBetaSearch(SearchableLogic logic, TranspositionTable table) {
+        this.logic = logic;
+        this.table = table;
+        this.boardSize = logic.getBoardSize();
+        this.squareValue = squareValues(boardSize);
+    }
+
+    /**
+     * Computes the positional value of every square of a board: corners are worth the most,
+     * the squares that give a corner away are worth less than nothing, and edges are worth more than the inside.
+     *
+     * @param n The size of the board.
+     * @return The value of every encoded square.
+     */
+    static int[] squareValues(int n) {
+        int[] values = new int[n * n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                int rowEdge = Math.min(i, n - 1 - i), colEdge = Math.min(j, n - 1 - j);
+                int value = 1;
+                if (rowEdge == 0 && colEdge == 0)
+                    value = CORNER;
+                else if (rowEdge == 1 && colEdge == 1)
+                    value = X_SQUARE;
+                else if ((rowEdge == 0 && colEdge == 1) || (rowEdge == 1 && colEdge == 0))
+                    value = C_SQUARE;
+                else if (rowEdge == 0 || colEdge == 0)
+                    value = EDGE;
+                values[i * n + j] = value;
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Runs an iterative-deepening search from the current position of the engine.
+     * Each iteration searches one ply deeper, starting with the principal variation of the last one.
+     * The search stops at maxDepth, when a forced win or loss is found, or at the deadline; in the last
+     * case the move of the last finished iteration is returned.
+     *
+     * @param maxDepth The deepest iteration to run.
+     * @param deadlineNanos The System.nanoTime() value at which the search must stop.
+     * @return The best move found (see SearchableLogic.encodeMove), or -1 if there is no valid move.
+     */
+    public int search(int maxDepth, long deadlineNanos) {
+        stopped = false;
+        if (table != null)
+            table.newSearch();
+        return iterate(1, maxDepth, deadlineNanos);
+    }
+
+    /**
+     * The iterative-deepening loop of search, starting at a given depth.
+     * Unlike search, it neither clears a previous stop() nor starts a new generation of the
+     * transposition table, so several searches can share one table (see ParallelSearch).
+     *
+     * @param firstDepth The first iteration to run.
+     * @param maxDepth The deepest iteration to run.
+     * @param deadlineNanos The System.nanoTime() value at which the search must stop.
+     * @return The best move found, or -1 if there is no valid move.
+     */
+    int iterate(int firstDepth, int maxDepth, long deadlineNanos) {
+        nodes = 0;
+        tableProbes = 0;
+        tableHits = 0;
+        deadline = deadlineNanos;
+        lastPvLength = 0;
+        completedDepth = 0;
+        int count = logic.validMoves(squaresAt(0));
+        if (count == 0)
+            return -1;  // No valid move at the root
+        // Until the first iteration is finished, fall back on the square with the best positional value
+        int bestMove = SearchableLogic.encodeMove(squaresAt(0)[0], SearchableLogic.SIMPLE);
+        for (int k = 1; k < count; k++) {
+            if (squareValue[squaresAt(0)[k]] > squareValue[SearchableLogic.moveSquare(bestMove)])
+                bestMove = SearchableLogic.encodeMove(squaresAt(0)[k], SearchableLogic.SIMPLE);
+        }
+        if (control != null && offerMoves)
+            control.offer(bestMove);
+        for (int depth = firstDepth; depth <= Math.min(maxDepth, MAX_DEPTH); depth++) {
+            int score = negamax(depth, -INFINITY, INFINITY, 0);
+            if (stopped)
+                break;
+            bestMove = pv[0][0];
+            if (control != null && offerMoves)
+                control.offer(bestMove);
+            bestScore = score;
+            completedDepth = depth;
+            lastPvLength = pvLength[0];
+            System.arraycopy(pv[0], 0, lastPv, 0, lastPvLength);
+            if (Math.abs(score) >= WIN)
+                break;  // A forced win or loss: deeper iterations cannot change the outcome
+        }
+        return bestMove;
+    }
+
+    /**
+     * Searches the current position to the given depth.
+     *
+     * @param depth The remaining depth, in plies.
+     * @param alpha The score the player on turn is already sure of.
+     * @param beta The score above which the opponent will avoid this position.
+     * @param ply The distance from the root.
+     * @return The score of the position for the player on turn.
+     */
+    private int negamax(int depth, int alpha, int beta, int ply) {
+        pvLength[ply] = 0;
+        if ((++nodes & 1023) == 0 && (System.nanoTime() - deadline > 0 || control != null && control.isStopped()))
+            stopped = true;
+        if (stopped)
+            return 0;
+
+        int[] valid = squaresAt(ply);
+        int count = logic.validMoves(valid);
+        if (count == 0)
+            return finalScore();
+        if (depth == 0 || ply == MAX_DEPTH)
+            return evaluate(count);
+
+        // Use a stored result when it was searched at least as deep and its bound settles this window
+        long key = logic.hashKey();
+        int tableMove = -1;
+        if (table != null) {
+            long entry = table.probe(key);
+            tableProbes++;
+            if (entry != 0) {
+                tableHits++;
+                tableMove = TranspositionTable.move(entry);
+                if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+                    int score = TranspositionTable.score(entry);
+                    int bound = TranspositionTable.bound(entry);
+                    if (bound == TranspositionTable.EXACT
+                            || (bound == TranspositionTable.LOWER && score >= beta)
+                            || (bound == TranspositionTable.UPPER && score <= alpha))
+                        return score;
+                }
+            }
+        }
+
+        int[] list = movesAt(ply);
+        int moveCount = orderMoves(valid, count, list, ply, tableMove);
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestMove = -1;
+        for (int k = 0; k < moveCount; k++) {
+            int move = list[k];
+            if (!logic.makeMove(SearchableLogic.moveSquare(move), SearchableLogic.moveType(move)))
+                continue;
+            int score = -negamax(depth - 1, -beta, -alpha, ply + 1);
+            logic.unmakeMove();
+            if (stopped)
+                return 0;
+            if (score > best) {
+                best = score;
+                bestMove = move;
+                if (score > alpha) {
+                    alpha = score;
+                    pv[ply][0] = move;
+                    System.arraycopy(pv[ply + 1], 0, pv[ply], 1, pvLength[ply + 1]);
+                    pvLength[ply] = pvLength[ply + 1] + 1;
+                    if (alpha >= beta)
+                        break;
+                }
+            }
+        }
+        if (table != null && bestMove >= 0) {
+            int bound = best <= originalAlpha ? TranspositionTable.UPPER
+                    : best >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+            table.store(key, bestMove, best, depth, bound);
+        }
+        return best;
+    }
+
+    /**
+     * Expands the valid squares into moves for every disc type the player has, in search order:
+     * the move of the last principal variation at this ply first, then the best move stored in the
+     * transposition table, then the squares by positional value.
+     *
+     * @param valid The valid squares.
+     * @param count The number of valid squares.
+     * @param list The array to fill with the encoded moves.
+     * @param ply The distance from the root.
+     * @param tableMove The move stored in the transposition table, or -1.
+     * @return The number of moves written.
+     */
+    private int orderMoves(int[] valid, int count, int[] list, int ply, int tableMove) {
+        Player player = logic.getCurrentPlayer();
+        boolean bombs = player.getNumber_of_bombs() > 0;
+        boolean unflippables = player.getNumber_of_unflippedable() > 0;
+        // Sort the squares by positional value, best first (insertion sort: the lists are short)
+        for (int i = 1; i < count; i++) {
+            int square = valid[i];
+            int j = i - 1;
+            while (j >= 0 && squareValue[valid[j]] < squareValue[square]) {
+                valid[j + 1] = valid[j];
+                j--;
+            }
+            valid[j + 1] = square;
+        }
+        int n = 0;
+        int pvMove = ply < lastPvLength ? lastPv[ply] : -1;
+        for (int k = 0; k < count; k++) {
+            int square = valid[k];
+            list[n++] = SearchableLogic.encodeMove(square, SearchableLogic.SIMPLE);
+            if (bombs)
+                list[n++] = SearchableLogic.encodeMove(square, SearchableLogic.BOMB);
+            if (unflippables)
+                list[n++] = SearchableLogic.encodeMove(square, SearchableLogic.UNFLIPPABLE);
+        }
+        moveToFront(list, n, tableMove);
+        moveToFront(list, n, pvMove);
+        return n;
+    }
+
+    // Move the given move to the front of the list, keeping the order of the others
+    private static void moveToFront(int[] list, int n, int move) {
+        if (move < 0)
+            return;
+        for (int k = 0; k < n; k++) {
+            if (list[k] == move) {
+                System.arraycopy(list, 0, list, 1, k);
+                list[0] = move;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Scores a finished game for the player on turn: the disc difference, scaled so that any win
+     * is better than any evaluation.
+     *
+     * @return The score of the finished game.
+     */
+    private int finalScore() {
+        boolean first = logic.isFirstPlayerTurn();
+        return (logic.countDiscs(first) - logic.countDiscs(!first)) * WIN;
+    }
+
+    /**
+     * Evaluates a position for the player on turn: positional value of the discs, a bonus for
+     * unflippable discs, the number of valid moves, and the special discs still in hand.
+     * With a PatternEvaluator set, its expected disc difference is used instead, kept below a win.
+     *
+     * @param mobility The number of valid squares of the player on turn.
+     * @return The evaluation of the position.
+     */
+    private int evaluate(int mobility) {
+        if (evaluator != null)
+            return Math.max(-WIN + 1, Math.min(WIN - 1, evaluator.evaluate(logic, mobility)));
+        int me = logic.isFirstPlayerTurn() ? 1 : 2;
+        int score = 0;
+        for (int square = 0; square < squareValue.length; square++) {
+            int owner = logic.getOwnerAt(square);
+            if (owner == 0)
+                continue;
+            int value = squareValue[square];
+            if (logic.getDiscTypeAt(square) == SearchableLogic.UNFLIPPABLE)
+                value += UNFLIPPABLE_BONUS;
+            score += owner == me ? value : -value;
+        }
+        Player player = logic.getCurrentPlayer();
+        Player opponent = logic.isFirstPlayerTurn() ? logic.getSecondPlayer() : logic.getFirstPlayer();
+        score += MOBILITY * mobility;
+        score += INVENTORY * (player.getNumber_of_bombs() + player.getNumber_of_unflippedable()
+                - opponent.getNumber_of_bombs() - opponent.getNumber_of_unflippedable());
+        return score;
+    }
+
+    // Return the square buffer of a ply, allocated on first use
+    private int[] squaresAt(int ply) {
+        if (squares[ply] == null)
+            squares[ply] = new int[boardSize * boardSize];
+        return squares[ply];
+    }
+
+    // Return the move buffer of a ply, allocated on first use
+    private int[] movesAt(int ply) {
+        if (moves[ply] == null)
+            moves[ply] = new int[3 * boardSize * boardSize];
+        return moves[ply];
+    }
+
+    /**
+     * Connects the search to an asynchronous move request: from the next search on, it also stops when the
+     * control is stopped, and it offers the control the move of every finished iteration.
+     *
+     * @param control The control of the request, or null for none.
+     */
+    public void setControl(SearchControl control) {
+        setControl(control, true);
+    }
+
+    /**
+     * Connects the search to an asynchronous move request, with or without offering it moves: the helper
+     * searches of a ParallelSearch stop with the request, but only the main search reports its moves.
+     *
+     * @param control The control of the request, or null for none.
+     * @param offerMoves Whether to offer the control the move of every finished iteration.
+     */
+    void setControl(SearchControl control, boolean offerMoves) {
+        this.control = control;
+        this.offerMoves = offerMoves;
+    }
+
+    /**
+     * Sets the evaluation used from the next search on.
+     *
+     * @param evaluator A trained evaluator for this board size, or null for the hand-tuned evaluation.
+     * @throws IllegalArgumentException If the evaluator was trained for another board size.
+     */
+    public void setEvaluator(PatternEvaluator evaluator) {
+        if (evaluator != null && evaluator.getBoardSize() != boardSize)
+            throw new IllegalArgumentException("Pattern weights for " + evaluator.getBoardSize() + "x"
+                    + evaluator.getBoardSize() + " do not fit a " + boardSize + "x" + boardSize + " board");
+        this.evaluator = evaluator;
+    }
+
+    /**
+     * Stops a running search as soon as possible; the search then returns the move of its last finished iteration.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    // Return the number of positions visited by the last search
+    public long getNodes() {
+        return nodes;
+    }
+
+    // Return the number of transposition table lookups of the last search
+    public long getTableProbes() {
+        return tableProbes;
+    }
+
+    // Return the number of transposition table lookups of the last search that found an entry
+    public long getTableHits() {
+        return tableHits;
+    }
+
+    // Return the depth of the last finished iteration of the last search
+    public int getCompletedDepth() {
+        return completedDepth;
+    }
+
+    // Return the score of the last finished iteration, for the player on turn at the root
+    public int getBestScore() {
+        return bestScore;
+    }
+}
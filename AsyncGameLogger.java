@@ -0,0 +1,196 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A GameLogger that moves the formatting and printing of events off the game thread.
+ * Each event is packed into a single long and put into a bounded ring buffer; a daemon thread takes
+ * the events out in order and passes them to another logger (by default a ConsoleGameLogger).
+ * Several game threads may share one AsyncGameLogger. When the buffer is full, the game thread
+ * waits for a free slot, so no event is lost.
+ */
+public class AsyncGameLogger implements GameLogger {
+
+    // Event codes, stored in the lowest 4 bits of a packed event
+    private static final int PLACED = 0;
+    private static final int FLIPPED = 1;
+    private static final int MOVE_FINISHED = 2;
+    private static final int UNDO_STARTED = 3;
+    private static final int UNDO_UNAVAILABLE = 4;
+    private static final int UNDO_REMOVED = 5;
+    private static final int UNDO_FLIPPED = 6;
+    private static final int UNDO_FINISHED = 7;
+    private static final int GAME_WON = 8;
+
+    // The logger that formats the events on the background thread
+    private final GameLogger target;
+    // The packed events, and for each slot the sequence number of the event it can hold next
+    private final long[] events;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    // Sequence number of the next event to publish (shared by the game threads)
+    private final AtomicLong tail = new AtomicLong();
+    // Sequence number of the next event to print (written only by the background thread)
+    private volatile long head = 0;
+    private volatile boolean running = true;
+    private final Thread worker;
+
+    /**
+     * Constructs an AsyncGameLogger that prints to System.out, with room for 8192 pending events.
+     */
+    public AsyncGameLogger() {
+        this(new ConsoleGameLogger(), 8192);
+    }
+
+    /**
+     * Constructs an AsyncGameLogger.
+     *
+     * @param target The logger that receives the events on the background thread.
+     * @param capacity The number of pending events the buffer can hold; rounded up to a power of two.
+     */
+    public AsyncGameLogger(GameLogger target, int capacity) {
+        if (capacity < 2)
+            throw new IllegalArgumentException("Capacity must be at least 2: " + capacity);
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        this.target = target;
+        this.events = new long[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.mask = size - 1;
+        this.worker = new Thread(this::drain, "AsyncGameLogger");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Puts a packed event into the ring buffer, waiting while the buffer is full.
+     *
+     * @param event The packed event.
+     */
+    private void publish(long event) {
+        long sequence = tail.getAndIncrement();
+        int slot = (int) sequence & mask;
+        while (sequences.get(slot) != sequence) {
+            Thread.onSpinWait();  // The buffer is full; wait for the background thread
+        }
+        events[slot] = event;
+        sequences.lazySet(slot, sequence + 1);
+    }
+
+    /**
+     * The loop of the background thread: takes the events out in order and passes them to the target.
+     */
+    private void drain() {
+        long next = head;
+        while (running || next < tail.get()) {
+            int slot = (int) next & mask;
+            if (sequences.get(slot) == next + 1) {
+                long event = events[slot];
+                sequences.lazySet(slot, next + events.length);
+                head = ++next;
+                dispatch(event);
+            } else {
+                LockSupport.parkNanos(100_000);
+            }
+        }
+    }
+
+    /**
+     * Unpacks an event and passes it to the target logger.
+     *
+     * @param event The packed event.
+     */
+    private void dispatch(long event) {
+        int code = (int) (event & 0xF);
+        boolean firstPlayer = ((event >>> 4) & 1) != 0;
+        int discType = (int) ((event >>> 5) & 0x3);
+        int row = (int) ((event >>> 8) & 0xFFFF);
+        int col = (int) ((event >>> 24) & 0xFFFF);
+        switch (code) {
+            case PLACED: target.discPlaced(firstPlayer, discType, row, col); break;
+            case FLIPPED: target.discFlipped(firstPlayer, discType, row, col); break;
+            case MOVE_FINISHED: target.moveFinished(); break;
+            case UNDO_STARTED: target.undoStarted(); break;
+            case UNDO_UNAVAILABLE: target.undoUnavailable(); break;
+            case UNDO_REMOVED: target.undoRemoved(discType, row, col); break;
+            case UNDO_FLIPPED: target.undoFlipped(discType, row, col); break;
+            case UNDO_FINISHED: target.undoFinished(); break;
+            default:
+                target.gameWon((int) ((event >>> 4) & 0x3), (int) ((event >>> 8) & 0xFFFFFFF), (int) (event >>> 36));
+        }
+    }
+
+    // Pack an event about one disc into a long
+    private static long pack(int code, boolean firstPlayer, int discType, int row, int col) {
+        return code | (firstPlayer ? 1L << 4 : 0) | ((long) discType << 5) | ((long) row << 8) | ((long) col << 24);
+    }
+
+    /**
+     * Waits until every event published so far has been passed to the target logger.
+     */
+    public void flush() {
+        long end = tail.get();
+        while (head < end && worker.isAlive()) {
+            LockSupport.parkNanos(100_000);
+        }
+    }
+
+    /**
+     * Passes all the pending events to the target logger and stops the background thread.
+     */
+    public void close() {
+        running = false;
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void discPlaced(boolean firstPlayer, int discType, int row, int col) {
+        publish(pack(PLACED, firstPlayer, discType, row, col));
+    }
+
+    @Override
+    public void discFlipped(boolean firstPlayer, int discType, int row, int col) {
+        publish(pack(FLIPPED, firstPlayer, discType, row, col));
+    }
+
+    @Override
+    public void moveFinished() {
+        publish(MOVE_FINISHED);
+    }
+
+    @Override
+    public void undoStarted() {
+        publish(UNDO_STARTED);
+    }
+
+    @Override
+    public void undoUnavailable() {
+        publish(UNDO_UNAVAILABLE);
+    }
+
+    @Override
+    public void undoRemoved(int discType, int row, int col) {
+        publish(pack(UNDO_REMOVED, false, discType, row, col));
+    }
+
+    @Override
+    public void undoFlipped(int discType, int row, int col) {
+        publish(pack(UNDO_FLIPPED, false, discType, row, col));
+    }
+
+    @Override
+    public void undoFinished() {
+        publish(UNDO_FINISHED);
+    }
+
+    @Override
+    public void gameWon(int winner, int count1, int count2) {
+        publish(GAME_WON | ((long) winner << 4) | ((long) count1 << 8) | ((long) count2 << 36));
+    }
+}
@@ -0,0 +1,671 @@
+import java.util.*;
+
+/**
+ * A PlayableLogic implementation that keeps the 8x8 board in bitboards instead of a Disc[][] array.
+ * Every square is one bit of a long (bit index = row * 8 + col). The discs of each player are kept
+ * in their own mask, and bomb and unflippable discs are marked in two extra masks.
+ * Move generation and flipping are done with shift-and-mask fills over whole rows, columns and diagonals
+ * at once, so this engine can replace GameLogic when AIs are run headless.
+ */
+public class BitboardGameLogic implements SearchableLogic {
+    // The size of the game board (always 8x8 for a bitboard)
+    private static final int boardSize = 8;
+    // Masks that remove the wrapped bits after a shift to the east or to the west
+    private static final long NOT_FIRST_COL = 0xFEFEFEFEFEFEFEFEL;
+    private static final long NOT_LAST_COL = 0x7F7F7F7F7F7F7F7FL;
+    // The discs of player 1 (index 0) and player 2 (index 1)
+    private final long[] discs = new long[2];
+    // The squares that hold a BombDisc / an UnflippableDisc (of any owner)
+    private long bombs;
+    private long unflippables;
+    // Player 1 and Player 2 objects
+    private Player player1;
+    private Player player2;
+    // A boolean indicating the turn of the player. If true, it's player 1's turn, otherwise player 2's turn.
+    private boolean turn = true;
+    // History of the moves for undo: the placed square and disc kind, and the mask of the flipped discs
+    private final int[] historySquares = new int[boardSize * boardSize];
+    private final Disc[] historyDiscs = new Disc[boardSize * boardSize];
+    private final long[] historyFlips = new long[boardSize * boardSize];
+    private int historySize = 0;
+    // A boolean indicating if the game mode is only human players (true) or AI can also play (false)
+    private boolean onlyHumen;
+    // Receives the placement, flip, undo and winner events (printed to the console by default)
+    private GameLogger logger = new ConsoleGameLogger();
+    // Stack of the moves made by makeMove: the square and disc type, and the mask of the flipped discs
+    private final int[] searchSquares = new int[boardSize * boardSize];
+    private final int[] searchTypes = new int[boardSize * boardSize];
+    private final long[] searchFlips = new long[boardSize * boardSize];
+    private int searchDepth = 0;
+    // Zobrist key of the current position, and the keys before each move on the makeMove stack
+    private static final Zobrist zobrist = Zobrist.forBoardSize(boardSize);
+    private long hash;
+    private final long[] searchHashes = new long[boardSize * boardSize];
+    // Reusable buffer for the encoded valid moves of the ValidMoves adapter
+    private final int[] moveBuffer = new int[boardSize * boardSize];
+    // PlayableLogic calls so far, to time one in EngineMetrics.SAMPLE_PERIOD
+    private int meteredCalls;
+
+    /**
+     * Executes a move for the current player, placing a disc at the specified position on the board.
+     * If the move is valid, the disc is placed, and any opponent's discs between the placed disc
+     * and the current player's discs are flipped. Handles special disc types like BombDisc and UnflippableDisc.
+     *
+     * @param a The position on the board where the disc will be placed.
+     * @param disc The disc that will be placed at the given position.
+     * @return Returns true if the move is valid and executed, false otherwise.
+     */
+    @Override
+    public boolean locate_disc(Position a, Disc disc) {
+        long start = EngineMetrics.sample(++meteredCalls);
+        boolean placed = placeDisc(a, disc);
+        EngineMetrics.LOCATE_DISC.recordSince(start);
+        return placed;
+    }
+
+    // Place a disc for locate_disc, logging the move
+    private boolean placeDisc(Position a, Disc disc) {
+        Player player = getCurrentPlayer();
+        int square = a.row() * boardSize + a.col();
+        // Check if the move is valid
+        if ((validMovesMask() & (1L << square)) == 0)
+            return false;
+        // Handle special discs (Bomb or Unflippable)
+        if (disc instanceof BombDisc) {
+            if (player.getNumber_of_bombs() == 0)
+                return false;  // No bombs left
+            player.reduce_bomb();  // Deduct bomb usage
+        }
+        if (disc instanceof UnflippableDisc) {
+            if (player.getNumber_of_unflippedable() == 0)
+                return false;  // No unflippable discs left
+            player.reduce_unflippedable();  // Deduct unflippable disc usage
+        }
+        long flips = flipsForSquare(square);
+        place(square, SearchableLogic.typeOf(disc), flips);
+        boolean first = turn;
+        logger.discPlaced(first, SearchableLogic.typeOf(disc), a.row(), a.col());
+        for (long f = flips; f != 0; f &= f - 1) {
+            int sq = Long.numberOfTrailingZeros(f);
+            logger.discFlipped(first, typeAt(sq), sq / boardSize, sq % boardSize);
+        }
+        historySquares[historySize] = square;
+        historyDiscs[historySize] = disc;
+        historyFlips[historySize] = flips;
+        historySize++;
+        turn = !turn;  // Toggle player turn
+        hash = zobrist.hash(this);
+        logger.moveFinished();
+        return true;
+    }
+
+    /**
+     * Places a disc for the current player without logging; see SearchableLogic.makeMove.
+     *
+     * @param square The encoded square where the disc is placed.
+     * @param discType The type of the disc: SIMPLE, BOMB or UNFLIPPABLE.
+     * @return true if the move was valid and made.
+     */
+    @Override
+    public boolean makeMove(int square, int discType) {
+        // An empty square is valid exactly when placing there flips something, so the flips are the check
+        if (((discs[0] | discs[1]) & (1L << square)) != 0)
+            return false;
+        long flips = flipsForSquare(square);
+        if (flips == 0)
+            return false;
+        Player player = getCurrentPlayer();
+        int me = turn ? 1 : 2;
+        searchHashes[searchDepth] = hash;
+        if (discType == BOMB) {
+            if (player.getNumber_of_bombs() == 0)
+                return false;
+            hash ^= zobrist.bombs(me, player.getNumber_of_bombs()) ^ zobrist.bombs(me, player.getNumber_of_bombs() - 1);
+            player.reduce_bomb();
+        } else if (discType == UNFLIPPABLE) {
+            if (player.getNumber_of_unflippedable() == 0)
+                return false;
+            hash ^= zobrist.unflippables(me, player.getNumber_of_unflippedable())
+                    ^ zobrist.unflippables(me, player.getNumber_of_unflippedable() - 1);
+            player.reduce_unflippedable();
+        }
+        hash ^= zobrist.disc(square, me, discType) ^ zobrist.side();
+        for (long f = flips; f != 0; f &= f - 1) {
+            int sq = Long.numberOfTrailingZeros(f);
+            int type = typeAt(sq);
+            hash ^= zobrist.disc(sq, 3 - me, type) ^ zobrist.disc(sq, me, type);
+        }
+        place(square, discType, flips);
+        searchSquares[searchDepth] = square;
+        searchTypes[searchDepth] = discType;
+        searchFlips[searchDepth] = flips;
+        searchDepth++;
+        turn = !turn;
+        return true;
+    }
+
+    // Play a sequence of moves without undo information, hashing the position reached once at the end
+    @Override
+    public int playMoves(int[] moves, int count, int[] flips) {
+        int played = 0;
+        while (played < count) {
+            int square = SearchableLogic.moveSquare(moves[played]);
+            int discType = SearchableLogic.moveType(moves[played]);
+            if (((discs[0] | discs[1]) & (1L << square)) != 0)
+                break;
+            long flipped = flipsForSquare(square);
+            Player player = getCurrentPlayer();
+            if (flipped == 0 || discType == BOMB && player.getNumber_of_bombs() == 0
+                    || discType == UNFLIPPABLE && player.getNumber_of_unflippedable() == 0)
+                break;
+            if (discType == BOMB)
+                player.reduce_bomb();
+            else if (discType == UNFLIPPABLE)
+                player.reduce_unflippedable();
+            place(square, discType, flipped);
+            if (flips != null)
+                flips[played] = Long.bitCount(flipped);
+            turn = !turn;
+            played++;
+        }
+        historySize = 0;
+        searchDepth = 0;
+        hash = zobrist.hash(this);
+        return played;
+    }
+
+    // Take back the last move made by makeMove, without logging
+    @Override
+    public void unmakeMove() {
+        searchDepth--;
+        turn = !turn;
+        remove(searchSquares[searchDepth], searchTypes[searchDepth], searchFlips[searchDepth]);
+        hash = searchHashes[searchDepth];
+    }
+
+    /**
+     * Sets up an arbitrary position; see SearchableLogic.loadPosition.
+     *
+     * @param owners The owner of every encoded square.
+     * @param discTypes The disc type of every encoded square.
+     * @param firstPlayerTurn true if player 1 is to move.
+     */
+    @Override
+    public void loadPosition(int[] owners, int[] discTypes, boolean firstPlayerTurn) {
+        discs[0] = 0;
+        discs[1] = 0;
+        bombs = 0;
+        unflippables = 0;
+        for (int square = 0; square < boardSize * boardSize; square++) {
+            if (owners[square] == 0)
+                continue;
+            long bit = 1L << square;
+            discs[owners[square] - 1] |= bit;
+            if (discTypes[square] == BOMB)
+                bombs |= bit;
+            else if (discTypes[square] == UNFLIPPABLE)
+                unflippables |= bit;
+        }
+        turn = firstPlayerTurn;
+        onlyHumen = player1.isHuman() && player2.isHuman();
+        historySize = 0;
+        searchDepth = 0;
+        hash = zobrist.hash(this);
+    }
+
+    // Take a snapshot of the position; the 8x8 board is one word per bitset
+    @Override
+    public GameState snapshot() {
+        return new GameState(boardSize, new long[]{discs[0]}, new long[]{discs[1]}, new long[]{bombs},
+                new long[]{unflippables}, turn,
+                player1.getNumber_of_bombs(), player1.getNumber_of_unflippedable(),
+                player2.getNumber_of_bombs(), player2.getNumber_of_unflippedable());
+    }
+
+    /**
+     * Sets up the position of a snapshot; see SearchableLogic.loadState.
+     *
+     * @param state The state to load; it must be of an 8x8 board.
+     */
+    @Override
+    public void loadState(GameState state) {
+        if (state.getBoardSize() != boardSize)
+            throw new IllegalArgumentException("BitboardGameLogic only plays 8x8, not " + state.getBoardSize());
+        long[] word = new long[1];
+        state.copyBits(0, word);
+        discs[0] = word[0];
+        state.copyBits(1, word);
+        discs[1] = word[0];
+        state.copyBits(2, word);
+        bombs = word[0];
+        state.copyBits(3, word);
+        unflippables = word[0];
+        player1.set_bombs_and_unflippedable(state.getBombs(true), state.getUnflippables(true));
+        player2.set_bombs_and_unflippedable(state.getBombs(false), state.getUnflippables(false));
+        turn = state.isFirstPlayerTurn();
+        onlyHumen = player1.isHuman() && player2.isHuman();
+        historySize = 0;
+        searchDepth = 0;
+        hash = zobrist.hash(this);
+    }
+
+    /**
+     * Creates an independent BitboardGameLogic with the same board, side to move and inventories.
+     * See SearchableLogic.copy.
+     *
+     * @return The copy.
+     */
+    @Override
+    public SearchableLogic copy() {
+        BitboardGameLogic copy = new BitboardGameLogic();
+        copy.player1 = Player.copyOf(player1);
+        copy.player2 = Player.copyOf(player2);
+        copy.logger = NoOpGameLogger.INSTANCE;
+        copy.discs[0] = discs[0];
+        copy.discs[1] = discs[1];
+        copy.bombs = bombs;
+        copy.unflippables = unflippables;
+        copy.turn = turn;
+        copy.hash = hash;
+        return copy;
+    }
+
+    // Return the Zobrist key of the current position
+    @Override
+    public long hashKey() {
+        return hash;
+    }
+
+    /**
+     * Puts the disc of the current player on the given square and moves the flipped discs to its mask.
+     *
+     * @param square The square index where the disc is placed.
+     * @param discType The type of the placed disc.
+     * @param flips The mask of the discs that change owner.
+     */
+    private void place(int square, int discType, long flips) {
+        long bit = 1L << square;
+        int me = turn ? 0 : 1;
+        discs[me] |= bit | flips;
+        discs[1 - me] &= ~flips;
+        if (discType == BOMB)
+            bombs |= bit;
+        else if (discType == UNFLIPPABLE)
+            unflippables |= bit;
+    }
+
+    /**
+     * Reverses place for the player on turn: removes the disc, returns the flipped discs to the opponent
+     * and gives back the bomb or unflippable disc that was used.
+     *
+     * @param square The encoded square of the placed disc.
+     * @param discType The type of the placed disc.
+     * @param flips The mask of the discs that were flipped.
+     */
+    private void remove(int square, int discType, long flips) {
+        long bit = 1L << square;
+        int mover = turn ? 0 : 1;
+        Player player = getCurrentPlayer();
+        discs[mover] &= ~(bit | flips);
+        discs[1 - mover] |= flips;
+        bombs &= ~bit;
+        unflippables &= ~bit;
+        if (discType == BOMB) player.increase_bomb();
+        else if (discType == UNFLIPPABLE) player.increase_unflippedable();
+    }
+
+    /**
+     * Computes the mask of discs that would be flipped if the current player placed a disc on the square.
+     * Each of the 8 directions is filled with the opponent's discs that touch the square; the run is kept
+     * only if it is closed by a disc of the current player. Unflippable discs are then removed, and every
+     * flipped bomb adds the opponent's neighbouring discs, until no new bomb is reached.
+     *
+     * @param square The square index where the disc would be placed.
+     * @return The mask of the discs that would change owner.
+     */
+    private long flipsForSquare(int square) {
+        long own = discs[turn ? 0 : 1];
+        long opp = discs[turn ? 1 : 0];
+        long bit = 1L << square;
+        long flips = runInDirection(bit, own, opp, 1, NOT_FIRST_COL)
+                | runInDirection(bit, own, opp, -1, NOT_LAST_COL)
+                | runInDirection(bit, own, opp, 8, -1L)
+                | runInDirection(bit, own, opp, -8, -1L)
+                | runInDirection(bit, own, opp, 9, NOT_FIRST_COL)
+                | runInDirection(bit, own, opp, 7, NOT_LAST_COL)
+                | runInDirection(bit, own, opp, -7, NOT_FIRST_COL)
+                | runInDirection(bit, own, opp, -9, NOT_LAST_COL);
+        long flippable = opp & ~unflippables;
+        flips &= flippable;
+        // Chain reaction: every flipped bomb flips the opponent's discs around it
+        long exploded = 0;
+        long pending = flips & bombs;
+        while (pending != 0) {
+            exploded |= pending;
+            flips |= neighbours(pending) & flippable;
+            pending = flips & bombs & ~exploded;
+        }
+        return flips;
+    }
+
+    /**
+     * The run of opponent discs next to a square in one direction, if a disc of the current player closes it.
+     *
+     * @param bit The mask of the square.
+     * @param own The current player's discs.
+     * @param opp The opponent's discs.
+     * @param shift The shift of one step (see step).
+     * @param mask The squares a step may land on.
+     * @return The run, or 0 if the direction is empty or the run is not closed.
+     */
+    private static long runInDirection(long bit, long own, long opp, int shift, long mask) {
+        long run = step(bit, shift, mask) & opp;
+        if (run == 0)
+            return 0;
+        for (int k = 0; k < 5; k++)
+            run |= step(run, shift, mask) & opp;
+        return (step(run, shift, mask) & own) != 0 ? run : 0;
+    }
+
+    /**
+     * Computes the mask of the empty squares where the current player has a valid move.
+     * For each direction, two fills walk away from the player's discs over the opponent's discs:
+     * one over any opponent disc, and one over runs that already contain a flippable disc.
+     * An empty square right after a run of the second kind is a valid move.
+     *
+     * @return The mask of all the valid moves of the current player.
+     */
+    private long validMovesMask() {
+        long own = discs[turn ? 0 : 1];
+        long opp = discs[turn ? 1 : 0];
+        long flippable = opp & ~unflippables;
+        long empty = ~(own | opp);
+        // One call per direction with constant arguments, so each is compiled to straight shifts
+        return movesInDirection(own, opp, flippable, empty, 1, NOT_FIRST_COL)    // east
+                | movesInDirection(own, opp, flippable, empty, -1, NOT_LAST_COL)  // west
+                | movesInDirection(own, opp, flippable, empty, 8, -1L)           // south
+                | movesInDirection(own, opp, flippable, empty, -8, -1L)          // north
+                | movesInDirection(own, opp, flippable, empty, 9, NOT_FIRST_COL)  // south-east
+                | movesInDirection(own, opp, flippable, empty, 7, NOT_LAST_COL)   // south-west
+                | movesInDirection(own, opp, flippable, empty, -7, NOT_FIRST_COL) // north-east
+                | movesInDirection(own, opp, flippable, empty, -9, NOT_LAST_COL); // north-west
+    }
+
+    /**
+     * The fills of validMovesMask in one direction.
+     *
+     * @param own The current player's discs.
+     * @param opp The opponent's discs.
+     * @param flippable The opponent's discs that can be flipped.
+     * @param empty The empty squares.
+     * @param shift The shift of one step: positive to the left, negative to the right.
+     * @param mask The squares a step may land on (drops the bits that wrap around a row).
+     * @return The valid moves found in this direction.
+     */
+    private static long movesInDirection(long own, long opp, long flippable, long empty, int shift, long mask) {
+        long any = step(own, shift, mask) & opp;
+        long withFlip = any & flippable;
+        long moves = 0;
+        while (any != 0) {
+            long next = step(withFlip, shift, mask);
+            moves |= next & empty;
+            long anyNext = step(any, shift, mask);
+            withFlip = (next & opp) | (anyNext & flippable);
+            any = anyNext & opp;
+        }
+        return moves;
+    }
+
+    // Shift a mask one step: to the left for a positive shift, to the right for a negative one
+    private static long step(long b, int shift, long mask) {
+        return (shift > 0 ? b << shift : b >>> -shift) & mask;
+    }
+
+    // Return the mask of all the squares touching one of the squares in the given mask
+    private static long neighbours(long b) {
+        long row = b | ((b << 1) & NOT_FIRST_COL) | ((b >>> 1) & NOT_LAST_COL);
+        return (row | (row << 8) | (row >>> 8)) & ~b;
+    }
+
+    // Return the type code of the disc on a non-empty square
+    private int typeAt(int square) {
+        long bit = 1L << square;
+        if ((bombs & bit) != 0)
+            return BOMB;
+        if ((unflippables & bit) != 0)
+            return UNFLIPPABLE;
+        return SIMPLE;
+    }
+
+    // Return the owner of the disc on an encoded square: 0 for none, 1 for player 1, 2 for player 2
+    @Override
+    public int getOwnerAt(int square) {
+        long bit = 1L << square;
+        if ((discs[0] & bit) != 0)
+            return 1;
+        return (discs[1] & bit) != 0 ? 2 : 0;
+    }
+
+    // Return the type code of the disc on an encoded square (SIMPLE when empty)
+    @Override
+    public int getDiscTypeAt(int square) {
+        return typeAt(square);
+    }
+
+    // Count the discs of player 1 or player 2
+    @Override
+    public int countDiscs(boolean firstPlayer) {
+        return Long.bitCount(discs[firstPlayer ? 0 : 1]);
+    }
+
+    // Set the logger that receives the game events
+    @Override
+    public void setLogger(GameLogger logger) {
+        this.logger = logger;
+    }
+
+    /**
+     * Returns the disc on the given position. The bitboards hold no Disc objects,
+     * so a new disc of the right type and owner is created for each call.
+     *
+     * @param position The position for which to retrieve the disc.
+     * @return The disc at the position, or null if the square is empty.
+     */
+    @Override
+    public Disc getDiscAtPosition(Position position) {
+        long bit = 1L << (position.row() * boardSize + position.col());
+        Player owner;
+        if ((discs[0] & bit) != 0)
+            owner = player1;
+        else if ((discs[1] & bit) != 0)
+            owner = player2;
+        else
+            return null;
+        if ((bombs & bit) != 0)
+            return new BombDisc(owner);
+        if ((unflippables & bit) != 0)
+            return new UnflippableDisc(owner);
+        return new SimpleDisc(owner);
+    }
+
+    // Return the size of the game board
+    @Override
+    public int getBoardSize() {
+        return boardSize;
+    }
+
+    /**
+     * Finds and returns all valid moves for the current player.
+     * This is a thin adapter over validMoves(int[]) for callers that need Position objects.
+     *
+     * @return A list of valid positions where the current player can place a disc.
+     */
+    @Override
+    public List<Position> ValidMoves() {
+        long start = EngineMetrics.sample(++meteredCalls);
+        int count = validMoves(moveBuffer);
+        List<Position> validMoves = new ArrayList<>(count);
+        for (int k = 0; k < count; k++) {
+            validMoves.add(Position.of(moveBuffer[k] / boardSize, moveBuffer[k] % boardSize));
+        }
+        EngineMetrics.VALID_MOVES.recordSince(start);
+        return validMoves;
+    }
+
+    /**
+     * Writes the valid moves of the current player to the given array, in increasing square order.
+     *
+     * @param moves The array to fill with encoded squares (row * 8 + col).
+     * @return The number of valid moves written to the array.
+     */
+    @Override
+    public int validMoves(int[] moves) {
+        int count = 0;
+        for (long m = validMovesMask(); m != 0; m &= m - 1) {
+            moves[count++] = Long.numberOfTrailingZeros(m);
+        }
+        return count;
+    }
+
+    /**
+     * Counts the number of discs that would be flipped if a disc were placed at the given position.
+     *
+     * @param a The position on the board where the disc is being placed.
+     * @return The number of discs that would be flipped if the current player places a disc at the given position.
+     */
+    @Override
+    public int countFlips(Position a) {
+        long start = EngineMetrics.sample(++meteredCalls);
+        int flips = Long.bitCount(flipsForSquare(a.row() * boardSize + a.col()));
+        EngineMetrics.COUNT_FLIPS.recordSince(start);
+        return flips;
+    }
+
+    // Count the flips for an encoded square (row * 8 + col)
+    @Override
+    public int countFlips(int square) {
+        return Long.bitCount(flipsForSquare(square));
+    }
+
+    /**
+     * Returns the current player whose turn it is.
+     *
+     * @return The player whose turn it is (either player1 or player2).
+     */
+    @Override
+    public Player getCurrentPlayer() {
+        return turn ? player1 : player2;
+    }
+
+    // Return the first player
+    @Override
+    public Player getFirstPlayer() {
+        return player1;
+    }
+
+    // Return the second player
+    @Override
+    public Player getSecondPlayer() {
+        return player2;
+    }
+
+    // Set the two players for the game
+    @Override
+    public void setPlayers(Player player1, Player player2) {
+        this.player1 = player1;
+        this.player2 = player2;
+    }
+
+    // Check if it's the first player's turn
+    @Override
+    public boolean isFirstPlayerTurn() {
+        return turn;
+    }
+
+    // Check if the game has finished (no valid moves left)
+    @Override
+    public boolean isGameFinished() {
+        if (validMovesMask() == 0) {
+            int winner = getWinner();
+            if (winner == 1)
+                player1.addWin();  // Player 1 wins
+            else if (winner == 2)
+                player2.addWin();  // Player 2 wins
+            return true;
+        }
+        return false;
+    }
+
+    // Determine the winner based on the number of discs each player has
+    private int getWinner() {
+        int count1 = Long.bitCount(discs[0]);
+        int count2 = Long.bitCount(discs[1]);
+        if (count1 > count2) {
+            logger.gameWon(1, count1, count2);
+            return 1;
+        }
+        else if (count2 > count1) {
+            logger.gameWon(2, count1, count2);
+            return 2;
+        }
+        return 0;
+    }
+
+    // Reset the game board to its initial state
+    @Override
+    public void reset() {
+        // Place the initial discs in the center: (3,3) and (4,4) for player 1, (3,4) and (4,3) for player 2
+        discs[0] = (1L << (3 * boardSize + 3)) | (1L << (4 * boardSize + 4));
+        discs[1] = (1L << (3 * boardSize + 4)) | (1L << (4 * boardSize + 3));
+        bombs = 0;
+        unflippables = 0;
+        turn = true;  // Player 1 starts
+        player1.reset_bombs_and_unflippedable();
+        player2.reset_bombs_and_unflippedable();
+        onlyHumen = player1.isHuman() && player2.isHuman();
+        historySize = 0;
+        searchDepth = 0;
+        hash = zobrist.hash(this);
+    }
+
+    /**
+     * Undoes the last move: removes the placed disc, gives back the bomb or unflippable disc that was used,
+     * and returns the flipped discs to their previous owner.
+     *
+     * @note This operation is only available when the game is in human-player mode (not AI).
+     */
+    @Override
+    public void undoLastMove() {
+        long start = EngineMetrics.sample(++meteredCalls);
+        undo();
+        EngineMetrics.UNDO_LAST_MOVE.recordSince(start);
+    }
+
+    // Undo the last move for undoLastMove, logging it
+    private void undo() {
+        if (!onlyHumen) return;  // Only allow undo in human-player mode
+        logger.undoStarted();
+
+        // Check if there is a previous move to undo
+        if (historySize == 0) {
+            logger.undoUnavailable();
+            return;
+        }
+
+        historySize--;
+        int square = historySquares[historySize];
+        Disc disc = historyDiscs[historySize];
+        long flips = historyFlips[historySize];
+
+        // Give the turn back to the player who made the move, and restore the board and the resources
+        turn = !turn;
+        remove(square, SearchableLogic.typeOf(disc), flips);
+        logger.undoRemoved(SearchableLogic.typeOf(disc), square / boardSize, square % boardSize);
+        for (long f = flips; f != 0; f &= f - 1) {
+            int sq = Long.numberOfTrailingZeros(f);
+            logger.undoFlipped(typeAt(sq), sq / boardSize, sq % boardSize);
+        }
+        hash = zobrist.hash(this);
+        logger.undoFinished();
+    }
+}
@@ -0,0 +1,90 @@
+import java.util.Arrays;
+
+/**
+ * Tables of the board's shape that depend only on its size, for the move generator.
+ * Squares are encoded as row * boardSize + col, like everywhere else in the engines.
+ * The tables are built once per board size and shared, read-only, by every engine of that size.
+ *
+ * A ray is the list of squares met walking from a square in one of the 8 directions up to the edge
+ * of the board (the square itself not included). With the rays precomputed, the move generator walks
+ * plain int arrays: the edge of the board is the end of the array, so no step needs a bounds check.
+ */
+public final class BoardGeometry {
+
+    // The number of directions, and the row and column steps of each direction
+    public static final int DIRECTIONS = 8;
+    private static final int[] ROW_STEPS = {1, 1, -1, -1, 1, -1, 0, 0};
+    private static final int[] COL_STEPS = {1, 0, 0, 1, -1, -1, 1, -1};
+
+    // Tables already built, indexed by board size
+    private static final BoardGeometry[] TABLES = new BoardGeometry[GameLogic.MAX_BOARD_SIZE + 1];
+
+    private final int boardSize;
+    // The squares next to every square (up to 8), in no particular order
+    private final int[][] neighbours;
+    // The ray of every square in every direction, at index square * DIRECTIONS + direction
+    private final int[][] rays;
+
+    /**
+     * Builds the tables for a board size.
+     *
+     * @param boardSize The size of the board.
+     */
+    private BoardGeometry(int boardSize) {
+        this.boardSize = boardSize;
+        int squares = boardSize * boardSize;
+        neighbours = new int[squares][];
+        int[] buffer = new int[8];
+        for (int square = 0; square < squares; square++) {
+            int row = square / boardSize, col = square % boardSize, count = 0;
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    int x = row + dx, y = col + dy;
+                    if ((dx != 0 || dy != 0) && x >= 0 && x < boardSize && y >= 0 && y < boardSize)
+                        buffer[count++] = x * boardSize + y;
+                }
+            }
+            neighbours[square] = Arrays.copyOf(buffer, count);
+        }
+        rays = new int[squares * DIRECTIONS][];
+        int[] ray = new int[boardSize];
+        for (int square = 0; square < squares; square++) {
+            for (int d = 0; d < DIRECTIONS; d++) {
+                int length = 0;
+                for (int x = square / boardSize + ROW_STEPS[d], y = square % boardSize + COL_STEPS[d];
+                     x >= 0 && x < boardSize && y >= 0 && y < boardSize;
+                     x += ROW_STEPS[d], y += COL_STEPS[d]) {
+                    ray[length++] = x * boardSize + y;
+                }
+                rays[square * DIRECTIONS + d] = Arrays.copyOf(ray, length);
+            }
+        }
+    }
+
+    /**
+     * Returns the tables for a board size; the tables are built on first use and then shared.
+     *
+     * @param boardSize The size of the board.
+     * @return The geometry of that board size.
+     */
+    public static synchronized BoardGeometry forBoardSize(int boardSize) {
+        if (TABLES[boardSize] == null)
+            TABLES[boardSize] = new BoardGeometry(boardSize);
+        return TABLES[boardSize];
+    }
+
+    // Return the size of the board
+    public int getBoardSize() {
+        return boardSize;
+    }
+
+    // Return the squares next to every square; the arrays must not be changed
+    public int[][] neighbours() {
+        return neighbours;
+    }
+
+    // Return the rays of every square, indexed by square * DIRECTIONS + direction; the arrays must not be changed
+    public int[][] rays() {
+        return rays;
+    }
+}
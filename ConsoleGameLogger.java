@@ -0,0 +1,95 @@
+import java.io.PrintStream;
+
+/**
+ * A GameLogger that prints every event right away, on the calling thread.
+ * The text is the same as the game logic printed before logging became pluggable,
+ * so this is the default logger of the engines.
+ */
+public class ConsoleGameLogger implements GameLogger {
+
+    // The stream the events are printed to
+    private final PrintStream out;
+
+    /**
+     * Constructs a ConsoleGameLogger that prints to System.out.
+     */
+    public ConsoleGameLogger() {
+        this(System.out);
+    }
+
+    /**
+     * Constructs a ConsoleGameLogger that prints to the given stream.
+     *
+     * @param out The stream to print the events to.
+     */
+    public ConsoleGameLogger(PrintStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Returns the symbol of a disc type, as returned by Disc.getType().
+     *
+     * @param discType The type code of the disc.
+     * @return "💣" for a bomb, "⭕" for an unflippable disc, "⬤" for a simple disc.
+     */
+    public static String symbol(int discType) {
+        switch (discType) {
+            case SearchableLogic.BOMB: return "💣";
+            case SearchableLogic.UNFLIPPABLE: return "⭕";
+            default: return "⬤";
+        }
+    }
+
+    // Return the name of a player as printed in the log
+    private static String name(boolean firstPlayer) {
+        return firstPlayer ? "Player 1" : "Player 2";
+    }
+
+    @Override
+    public void discPlaced(boolean firstPlayer, int discType, int row, int col) {
+        out.println(name(firstPlayer) + " placed a " + symbol(discType) + " in " + Position.of(row, col));
+    }
+
+    @Override
+    public void discFlipped(boolean firstPlayer, int discType, int row, int col) {
+        out.println(name(firstPlayer) + " flipped the " + symbol(discType) + " in " + Position.of(row, col));
+    }
+
+    @Override
+    public void moveFinished() {
+        out.println();
+    }
+
+    @Override
+    public void undoStarted() {
+        out.println("Undoing last move:");
+    }
+
+    @Override
+    public void undoUnavailable() {
+        out.println("\tNo previous move available to undo.");
+    }
+
+    @Override
+    public void undoRemoved(int discType, int row, int col) {
+        out.println("\tUndo: removing " + symbol(discType) + " from " + Position.of(row, col));
+    }
+
+    @Override
+    public void undoFlipped(int discType, int row, int col) {
+        out.println("\tUndo: flipping back " + symbol(discType) + " in " + Position.of(row, col));
+    }
+
+    @Override
+    public void undoFinished() {
+        out.println();
+    }
+
+    @Override
+    public void gameWon(int winner, int count1, int count2) {
+        if (winner == 1)
+            out.println("Player 1 wins with " + count1 + " discs! Player 2 had " + count2 + " discs.");
+        else
+            out.println("Player 2 wins with " + count2 + " discs! Player 1 had " + count1 + " discs.");
+    }
+}
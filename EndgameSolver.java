@@ -0,0 +1,388 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A perfect-play endgame solver: searches every line to the end of the game and returns the exact
+ * final disc difference, with the move that reaches it. It runs over a SearchableLogic engine with
+ * makeMove/unmakeMove, so it follows the engine's rules exactly, bombs and unflippable discs included,
+ * and it branches over the disc types like AlphaBetaSearch. A game ends when the player to move has no
+ * valid move, so a line never passes.
+ *
+ * Moves are ordered so that the alpha-beta cut-offs come early:
+ * - with more than MOBILITY_EMPTIES empty squares, fastest-first: the moves that leave the opponent the
+ *   fewest replies go first;
+ * - below that, by parity: moves into a quadrant with an odd number of empty squares go first, since
+ *   the player who fills a region last usually keeps it;
+ * - with FEW_EMPTIES or fewer empty squares, the moves are played as generated, with no ordering work at all.
+ * An optional TranspositionTable, which must not be shared with a heuristic search, keeps the result of
+ * every position with more than FEW_EMPTIES empty squares: the same position is often reached by playing
+ * the same squares in another order or with other disc types, and its best move is tried first next time.
+ * The buffers of every ply are kept between solves, so a solve allocates nothing once it has warmed up.
+ *
+ * The solve time grows about tenfold every two or three empty squares, and more when the players still
+ * hold special discs; run main to measure it and choose the threshold of AIPlayer.setEndgameEmpties.
+ *
+ * Usage: java EndgameSolver [--max-empties N] [--positions N] [--seed N] [--size N]
+ */
+public class EndgameSolver {
+
+    // Result of a solve stopped by its deadline
+    public static final int UNKNOWN = Integer.MIN_VALUE;
+    // Above this many empty squares, moves are ordered by the opponent's mobility
+    private static final int MOBILITY_EMPTIES = 7;
+    // At or below this many empty squares, moves are not ordered
+    private static final int FEW_EMPTIES = 4;
+
+    private final SearchableLogic logic;
+    private final TranspositionTable table;
+    private final int boardSize;
+    // The quadrant of every square (0 to 3), for the parity ordering
+    private final int[] quadrant;
+    // Buffers per ply: the valid squares, the moves over the disc types, and their ordering keys
+    private final int[][] squares;
+    private final int[][] moves;
+    private final int[][] keys;
+    // A scratch buffer for counting the opponent's replies
+    private final int[] replies;
+    private long nodes;
+    private long deadline;
+    private SearchControl control;
+    private boolean stopped;
+    private int bestMove;
+    // The best move of the last position searched, for the table
+    private int lastMove;
+
+    /**
+     * Constructs a solver over the given engine.
+     *
+     * @param logic The engine to solve on; its current position is the root.
+     */
+    public EndgameSolver(SearchableLogic logic) {
+        this(logic, null);
+    }
+
+    /**
+     * Constructs a solver over the given engine with a transposition table.
+     *
+     * @param logic The engine to solve on; its current position is the root.
+     * @param table A table for this solver's exact scores only, or null for none.
+     */
+    public EndgameSolver(SearchableLogic logic, TranspositionTable table) {
+        this.logic = logic;
+        this.table = table;
+        this.boardSize = logic.getBoardSize();
+        int cells = boardSize * boardSize;
+        quadrant = new int[cells];
+        for (int square = 0; square < cells; square++) {
+            quadrant[square] = (square / boardSize >= boardSize / 2 ? 2 : 0) + (square % boardSize >= boardSize / 2 ? 1 : 0);
+        }
+        squares = new int[cells + 1][];
+        moves = new int[cells + 1][];
+        keys = new int[cells + 1][];
+        replies = new int[cells];
+    }
+
+    /**
+     * Solves the current position of the engine.
+     *
+     * @param deadlineNanos The System.nanoTime() value at which to give up.
+     * @param control The control of an asynchronous request, also checked; or null.
+     * @return The final disc difference (player to move minus opponent) with perfect play,
+     *         or UNKNOWN if the deadline came first. The engine is left as it was.
+     */
+    public int solve(long deadlineNanos, SearchControl control) {
+        this.deadline = deadlineNanos;
+        this.control = control;
+        stopped = false;
+        nodes = 0;
+        bestMove = -1;
+        if (table != null)
+            table.newSearch();
+        int empties = getEmpties(logic);
+        int parity = 0;
+        for (int square = 0; square < boardSize * boardSize; square++) {
+            if (logic.getOwnerAt(square) == 0)
+                parity ^= 1 << quadrant[square];
+        }
+        int score = negamax(-boardSize * boardSize - 1, boardSize * boardSize + 1, 0, empties, parity);
+        return stopped ? UNKNOWN : score;
+    }
+
+    /**
+     * Searches a position to the end of the game.
+     *
+     * @param alpha The score the player on turn is already sure of.
+     * @param beta The score above which the opponent will avoid this position.
+     * @param ply The distance from the root.
+     * @param empties The number of empty squares.
+     * @param parity Bit q is set if quadrant q has an odd number of empty squares.
+     * @return The final disc difference for the player on turn (exact inside the window).
+     */
+    private int negamax(int alpha, int beta, int ply, int empties, int parity) {
+        if ((++nodes & 1023) == 0 && (System.nanoTime() - deadline > 0 || control != null && control.isStopped()))
+            stopped = true;
+        if (stopped)
+            return 0;
+        int[] valid = buffer(squares, ply, 1);
+        int count = logic.validMoves(valid);
+        if (count == 0)
+            return finalScore();
+
+        if (empties <= FEW_EMPTIES || table == null)
+            return search(alpha, beta, ply, empties, parity, count, -1);
+
+        // Use a stored score when its bound settles this window; the depth of an entry is its number of empties
+        long key = logic.hashKey();
+        int tableMove = -1;
+        long entry = table.probe(key);
+        if (entry != 0 && TranspositionTable.depth(entry) == empties) {
+            tableMove = TranspositionTable.move(entry);
+            int score = TranspositionTable.score(entry);
+            int bound = TranspositionTable.bound(entry);
+            if (ply > 0 && (bound == TranspositionTable.EXACT
+                    || (bound == TranspositionTable.LOWER && score >= beta)
+                    || (bound == TranspositionTable.UPPER && score <= alpha)))
+                return score;
+        }
+        int best = search(alpha, beta, ply, empties, parity, count, tableMove);
+        if (!stopped && lastMove >= 0) {
+            int bound = best <= alpha ? TranspositionTable.UPPER
+                    : best >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+            table.store(key, lastMove, best, empties, bound);
+        }
+        return best;
+    }
+
+    /**
+     * Searches the moves of a position whose valid squares are in the squares buffer of its ply,
+     * and leaves the best move in lastMove.
+     *
+     * @param alpha The score the player on turn is already sure of.
+     * @param beta The score above which the opponent will avoid this position.
+     * @param ply The distance from the root.
+     * @param empties The number of empty squares.
+     * @param parity Bit q is set if quadrant q has an odd number of empty squares.
+     * @param count The number of valid squares.
+     * @param tableMove The move to try first, or -1.
+     * @return The final disc difference for the player on turn (exact inside the window).
+     */
+    private int search(int alpha, int beta, int ply, int empties, int parity, int count, int tableMove) {
+        int[] valid = squares[ply];
+        int[] list = buffer(moves, ply, 3);
+        int moveCount = empties <= FEW_EMPTIES ? expand(valid, count, list, empties)
+                : orderMoves(valid, count, list, buffer(keys, ply, 3), empties, parity);
+        if (tableMove >= 0)
+            moveToFront(list, moveCount, tableMove);
+        int best = -boardSize * boardSize - 1;
+        int bestMoveHere = -1;
+        for (int k = 0; k < moveCount; k++) {
+            int move = list[k];
+            int square = SearchableLogic.moveSquare(move);
+            logic.makeMove(square, SearchableLogic.moveType(move));
+            int score = -negamax(-beta, -alpha, ply + 1, empties - 1, parity ^ (1 << quadrant[square]));
+            logic.unmakeMove();
+            if (stopped)
+                return 0;
+            if (score > best) {
+                best = score;
+                bestMoveHere = move;
+                if (ply == 0)
+                    bestMove = move;
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta)
+                        break;
+                }
+            }
+        }
+        lastMove = bestMoveHere;
+        return best;
+    }
+
+    // Move the given move to the front of the list, keeping the order of the others
+    private static void moveToFront(int[] list, int count, int move) {
+        for (int k = 0; k < count; k++) {
+            if (list[k] == move) {
+                System.arraycopy(list, 0, list, 1, k);
+                list[0] = move;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Expands the valid squares into moves, one per disc type the player still has.
+     * With one empty square left the game ends with the move, so the disc type cannot matter and
+     * only the simple disc is tried.
+     *
+     * @param valid The valid squares.
+     * @param count The number of valid squares.
+     * @param list The array to write the encoded moves to.
+     * @param empties The number of empty squares.
+     * @return The number of moves.
+     */
+    private int expand(int[] valid, int count, int[] list, int empties) {
+        Player player = logic.getCurrentPlayer();
+        boolean bombs = empties > 1 && player.getNumber_of_bombs() > 0;
+        boolean unflippables = empties > 1 && player.getNumber_of_unflippedable() > 0;
+        int n = 0;
+        for (int k = 0; k < count; k++) {
+            list[n++] = SearchableLogic.encodeMove(valid[k], SearchableLogic.SIMPLE);
+            if (bombs)
+                list[n++] = SearchableLogic.encodeMove(valid[k], SearchableLogic.BOMB);
+            if (unflippables)
+                list[n++] = SearchableLogic.encodeMove(valid[k], SearchableLogic.UNFLIPPABLE);
+        }
+        return n;
+    }
+
+    /**
+     * Expands the valid squares into moves and sorts them, best first: by the number of replies left to the
+     * opponent when there are many empty squares, then by parity (odd quadrants first).
+     * The key of a square is shared by its disc types, which keep the order simple, bomb, unflippable.
+     *
+     * @param valid The valid squares.
+     * @param count The number of valid squares.
+     * @param list The array to write the sorted moves to.
+     * @param order The array for the ordering keys.
+     * @param empties The number of empty squares.
+     * @param parity The parity of the empty squares of every quadrant.
+     * @return The number of moves.
+     */
+    private int orderMoves(int[] valid, int count, int[] list, int[] order, int empties, int parity) {
+        int n = expand(valid, count, list, empties);
+        int lastSquare = -1, key = 0;
+        for (int k = 0; k < n; k++) {
+            int square = SearchableLogic.moveSquare(list[k]);
+            // The disc types of a square follow each other and share its key
+            if (square != lastSquare) {
+                lastSquare = square;
+                key = (parity >> quadrant[square] & 1) == 1 ? 0 : 1;
+                if (empties > MOBILITY_EMPTIES) {
+                    logic.makeMove(square, SearchableLogic.SIMPLE);
+                    key += 2 * logic.validMoves(replies);
+                    logic.unmakeMove();
+                }
+            }
+            // Insertion sort; equal keys keep their order
+            int move = list[k];
+            int j = k;
+            while (j > 0 && order[j - 1] > key) {
+                order[j] = order[j - 1];
+                list[j] = list[j - 1];
+                j--;
+            }
+            order[j] = key;
+            list[j] = move;
+        }
+        return n;
+    }
+
+    // Return the final disc difference for the player on turn
+    private int finalScore() {
+        int difference = logic.countDiscs(true) - logic.countDiscs(false);
+        return logic.isFirstPlayerTurn() ? difference : -difference;
+    }
+
+    // Return the buffer of a ply, allocated on first use with the given number of entries per square
+    private int[] buffer(int[][] buffers, int ply, int perSquare) {
+        if (buffers[ply] == null)
+            buffers[ply] = new int[perSquare * boardSize * boardSize];
+        return buffers[ply];
+    }
+
+    /**
+     * Counts the empty squares of an engine's position.
+     *
+     * @param logic The engine.
+     * @return The number of empty squares.
+     */
+    public static int getEmpties(SearchableLogic logic) {
+        return logic.getBoardSize() * logic.getBoardSize() - logic.countDiscs(true) - logic.countDiscs(false);
+    }
+
+    // Return the move of the last finished solve with the best score, or -1 if there was no valid move
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    // Return the number of positions visited by the last solve
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Measures the solve time against the number of empty squares, on positions reached by random games
+     * (with bombs and unflippable discs played now and then), and prints a table. The solver uses a 4 MB
+     * transposition table, like the one of AIPlayer.endgameMove.
+     *
+     * @param args The command-line arguments; see the class comment.
+     */
+    public static void main(String[] args) {
+        int maxEmpties = 14;
+        int positions = 10;
+        long seed = 1;
+        int size = 8;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--max-empties": maxEmpties = Integer.parseInt(args[++i]); break;
+                case "--positions": positions = Integer.parseInt(args[++i]); break;
+                case "--seed": seed = Long.parseLong(args[++i]); break;
+                case "--size": size = Integer.parseInt(args[++i]); break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        TranspositionTable table = new TranspositionTable(4);
+        System.out.printf("%7s %12s %12s %14s %14s%n", "empties", "mean ms", "max ms", "mean nodes", "nodes/s");
+        for (int empties = 4; empties <= maxEmpties; empties++) {
+            double totalMs = 0, maxMs = 0;
+            long totalNodes = 0;
+            int solved = 0;
+            for (long game = seed; solved < positions; game++) {
+                SearchableLogic logic = randomPosition(size, empties, new SplittableRandom(game * 1000 + empties));
+                if (logic == null)
+                    continue;
+                EndgameSolver solver = new EndgameSolver(logic, table);
+                long start = System.nanoTime();
+                solver.solve(start + TimeUnit.DAYS.toNanos(1), null);
+                double ms = (System.nanoTime() - start) / 1e6;
+                totalMs += ms;
+                maxMs = Math.max(maxMs, ms);
+                totalNodes += solver.getNodes();
+                solved++;
+            }
+            System.out.printf("%7d %12.2f %12.2f %14d %14.0f%n", empties, totalMs / positions, maxMs,
+                    totalNodes / positions, totalNodes / (totalMs / 1000));
+        }
+    }
+
+    /**
+     * Plays a random game until the given number of empty squares is left. Now and then a bomb or an
+     * unflippable disc is played, while the player has one.
+     *
+     * @param size The size of the board.
+     * @param empties The number of empty squares to stop at.
+     * @param random The generator of the moves.
+     * @return The engine at that point with a valid move to play, or null if the game ended before.
+     */
+    static SearchableLogic randomPosition(int size, int empties, SplittableRandom random) {
+        SearchableLogic logic = size == 8 ? new BitboardGameLogic() : new GameLogic(size);
+        logic.setLogger(NoOpGameLogger.INSTANCE);
+        logic.setPlayers(new HumanPlayer(true), new HumanPlayer(false));
+        logic.reset();
+        int[] valid = new int[size * size];
+        while (true) {
+            int count = logic.validMoves(valid);
+            if (count == 0)
+                return null;
+            if (getEmpties(logic) == empties)
+                return logic;
+            Player player = logic.getCurrentPlayer();
+            int roll = random.nextInt(12);
+            int type = roll == 0 && player.getNumber_of_bombs() > 0 ? SearchableLogic.BOMB
+                    : roll == 1 && player.getNumber_of_unflippedable() > 0 ? SearchableLogic.UNFLIPPABLE
+                    : SearchableLogic.SIMPLE;
+            logic.makeMove(valid[random.nextInt(count)], type);
+        }
+    }
+}
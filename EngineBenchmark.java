@@ -0,0 +1,468 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Micro-benchmarks of the hot paths of the engines and the simple AI players, with a baseline to
+ * gate performance changes against.
+ *
+ * The benchmarks run on a fixed corpus: opening, midgame and endgame positions reached by random games
+ * from fixed seeds (with some bombs and unflippable discs played), and positions where a move sets off
+ * a chain of at least two bombs. The same positions are loaded into GameLogic and BitboardGameLogic.
+ * The worst-case chains fill 8x8, 16x16 and 32x32 boards of GameLogic with the opponent's bombs, so that
+ * one move in the corner sets off every disc on the board; the time per flipped square should stay flat
+ * as the board grows.
+ *
+ * Every benchmark is warmed up and then measured over several timed iterations, cycling through its
+ * positions. It reports the time per operation and the bytes allocated per operation (from the
+ * per-thread allocation counter of the JVM), like JMH with its gc.alloc.rate.norm profiler.
+ *
+ * Usage: java EngineBenchmark [--quick] [--filter text] [--baseline file] [--write-baseline file] [--tolerance 0.2]
+ * With --baseline, the run fails (exit code 1) if a benchmark is slower than its baseline by more than
+ * the tolerance, or allocates more bytes per operation. With --write-baseline, the results are saved
+ * as the new baseline. The engine metrics (see EngineMetrics) are off during the run unless
+ * -Dreversi.metrics=true is given, so the numbers are those of the engines themselves.
+ */
+public class EngineBenchmark {
+
+    // Number of plies played to reach each phase of the corpus, and the number of positions per phase
+    private static final String[] PHASES = {"opening", "midgame", "endgame"};
+    private static final int[] PHASE_PLIES = {4, 24, 48};
+    private static final int POSITIONS_PER_PHASE = 8;
+    // Number of bomb-chain positions, and the fewest bombs a move must set off to be one
+    private static final int BOMB_POSITIONS = 8;
+    private static final int MIN_CHAIN = 2;
+    // Board sizes of the worst-case chain positions
+    private static final int[] WORST_CHAIN_SIZES = {8, 16, 32};
+    // Allowed growth of the allocation per operation before a run counts as a regression, in bytes
+    private static final double ALLOCATION_SLACK = 8;
+
+    /**
+     * One benchmarked operation.
+     */
+    private interface Operation {
+        /**
+         * Runs the operation once.
+         *
+         * @param index The number of the call, used to cycle through the positions.
+         * @return A value derived from the result, so the JIT cannot drop the work.
+         */
+        long run(long index);
+    }
+
+    /**
+     * A position of the corpus: the moves (encoded, see SearchableLogic.encodeMove) that lead to it
+     * from the start position, and a valid square of the player on turn.
+     */
+    private static final class Sample {
+        final int[] moves;
+        final int square;
+
+        Sample(int[] moves, int square) {
+            this.moves = moves;
+            this.square = square;
+        }
+    }
+
+    // Measured results, by benchmark name: {ns/op, error of ns/op, bytes/op}
+    private final Map<String, double[]> results = new HashMap<>();
+    private final List<String> order = new ArrayList<>();
+    private final int warmupIterations;
+    private final int measureIterations;
+    private final long iterationNanos;
+    private final String filter;
+    // Keeps the results of the operations alive
+    private static volatile long sink;
+
+    /**
+     * Constructs a benchmark run.
+     *
+     * @param warmupIterations The number of unmeasured iterations of each benchmark.
+     * @param measureIterations The number of measured iterations of each benchmark.
+     * @param iterationMillis The length of each iteration, in milliseconds.
+     * @param filter Only benchmarks whose name contains this text run; null for all.
+     */
+    public EngineBenchmark(int warmupIterations, int measureIterations, long iterationMillis, String filter) {
+        this.warmupIterations = warmupIterations;
+        this.measureIterations = measureIterations;
+        this.iterationNanos = iterationMillis * 1_000_000L;
+        this.filter = filter;
+    }
+
+    /**
+     * Plays random games from fixed seeds and keeps the position after the given number of plies.
+     * Bombs and unflippable discs are played now and then, while the player has them.
+     *
+     * @param plies The number of plies to play.
+     * @param count The number of positions to build.
+     * @param seed The seed of the first game; every game uses the next seed.
+     * @return The positions.
+     */
+    static List<Sample> randomPositions(int plies, int count, long seed) {
+        List<Sample> samples = new ArrayList<>();
+        for (long game = seed; samples.size() < count; game++) {
+            SplittableRandom random = new SplittableRandom(game);
+            SearchableLogic logic = newEngine(false);
+            int[] moves = new int[plies];
+            int[] valid = new int[64];
+            boolean finished = false;
+            for (int ply = 0; ply < plies; ply++) {
+                int n = logic.validMoves(valid);
+                if (n == 0) {
+                    finished = true;
+                    break;
+                }
+                moves[ply] = randomMove(logic, valid[random.nextInt(n)], random);
+                logic.makeMove(SearchableLogic.moveSquare(moves[ply]), SearchableLogic.moveType(moves[ply]));
+            }
+            int n = finished ? 0 : logic.validMoves(valid);
+            if (n > 0)
+                samples.add(new Sample(moves, valid[new SplittableRandom(game).nextInt(n)]));
+        }
+        return samples;
+    }
+
+    /**
+     * Finds positions where a move flips a bomb that sets off at least MIN_CHAIN bombs in all,
+     * in random games where the players spend their bombs early.
+     *
+     * @param count The number of positions to find.
+     * @param seed The seed of the first game.
+     * @return The positions, each with the square of the chain-reaction move.
+     */
+    static List<Sample> bombChainPositions(int count, long seed) {
+        List<Sample> samples = new ArrayList<>();
+        int[] valid = new int[64];
+        for (long game = seed; samples.size() < count; game++) {
+            SplittableRandom random = new SplittableRandom(game);
+            SearchableLogic logic = newEngine(false);
+            int[] moves = new int[60];
+            for (int ply = 0; ply < 60 && samples.size() < count; ply++) {
+                int n = logic.validMoves(valid);
+                if (n == 0)
+                    break;
+                for (int k = 0; k < n; k++) {
+                    if (bombsSetOff(logic, valid[k]) >= MIN_CHAIN) {
+                        samples.add(new Sample(Arrays.copyOf(moves, ply), valid[k]));
+                        break;
+                    }
+                }
+                int square = valid[random.nextInt(n)];
+                moves[ply] = logic.getCurrentPlayer().getNumber_of_bombs() > 0 && random.nextInt(2) == 0
+                        ? SearchableLogic.encodeMove(square, SearchableLogic.BOMB)
+                        : SearchableLogic.encodeMove(square, SearchableLogic.SIMPLE);
+                logic.makeMove(square, SearchableLogic.moveType(moves[ply]));
+            }
+        }
+        return samples;
+    }
+
+    // Return the number of the opponent's bombs that change owner if a simple disc is placed on the square
+    private static int bombsSetOff(SearchableLogic logic, int square) {
+        int opponent = logic.isFirstPlayerTurn() ? 2 : 1;
+        long bombs = 0;
+        for (int sq = 0; sq < 64; sq++) {
+            if (logic.getOwnerAt(sq) == opponent && logic.getDiscTypeAt(sq) == SearchableLogic.BOMB)
+                bombs |= 1L << sq;
+        }
+        logic.makeMove(square, SearchableLogic.SIMPLE);
+        int count = 0;
+        for (long b = bombs; b != 0; b &= b - 1) {
+            if (logic.getOwnerAt(Long.numberOfTrailingZeros(b)) != opponent)
+                count++;
+        }
+        logic.unmakeMove();
+        return count;
+    }
+
+    // Choose the disc type of a random move: mostly simple, sometimes a special disc the player still has
+    private static int randomMove(SearchableLogic logic, int square, SplittableRandom random) {
+        Player player = logic.getCurrentPlayer();
+        int roll = random.nextInt(20);
+        if (roll == 0 && player.getNumber_of_bombs() > 0)
+            return SearchableLogic.encodeMove(square, SearchableLogic.BOMB);
+        if (roll == 1 && player.getNumber_of_unflippedable() > 0)
+            return SearchableLogic.encodeMove(square, SearchableLogic.UNFLIPPABLE);
+        return SearchableLogic.encodeMove(square, SearchableLogic.SIMPLE);
+    }
+
+    // Return a new engine with two human players (so undoLastMove is allowed) and no logging
+    private static SearchableLogic newEngine(boolean bitboard) {
+        SearchableLogic logic = bitboard ? new BitboardGameLogic() : new GameLogic();
+        logic.setLogger(NoOpGameLogger.INSTANCE);
+        logic.setPlayers(new HumanPlayer(true), new HumanPlayer(false));
+        logic.reset();
+        return logic;
+    }
+
+    /**
+     * Loads every sample into a new engine, playing its moves with locate_disc so they can be undone.
+     *
+     * @param samples The positions.
+     * @param bitboard true for BitboardGameLogic, false for GameLogic.
+     * @return One engine per sample.
+     */
+    private static SearchableLogic[] load(List<Sample> samples, boolean bitboard) {
+        SearchableLogic[] engines = new SearchableLogic[samples.size()];
+        for (int i = 0; i < engines.length; i++) {
+            engines[i] = newEngine(bitboard);
+            for (int move : samples.get(i).moves) {
+                int square = SearchableLogic.moveSquare(move);
+                engines[i].locate_disc(Position.of(square / 8, square % 8),
+                        SearchableLogic.createDisc(SearchableLogic.moveType(move), engines[i].getCurrentPlayer()));
+            }
+        }
+        return engines;
+    }
+
+    /**
+     * Runs all the benchmarks.
+     */
+    public void runAll() {
+        for (int phase = 0; phase < PHASES.length; phase++) {
+            List<Sample> samples = randomPositions(PHASE_PLIES[phase], POSITIONS_PER_PHASE, 1000L * (phase + 1));
+            for (boolean bitboard : new boolean[]{false, true}) {
+                benchmarkEngine((bitboard ? "BitboardGameLogic." : "GameLogic.") + "%s/" + PHASES[phase],
+                        samples, load(samples, bitboard));
+            }
+        }
+        List<Sample> chains = bombChainPositions(BOMB_POSITIONS, 7000);
+        for (boolean bitboard : new boolean[]{false, true}) {
+            SearchableLogic[] engines = load(chains, bitboard);
+            Position[] squares = squares(chains);
+            measure((bitboard ? "BitboardGameLogic." : "GameLogic.") + "countFlips/bombChain",
+                    i -> engines[(int) (i % engines.length)].countFlips(squares[(int) (i % engines.length)]));
+        }
+        for (int size : WORST_CHAIN_SIZES) {
+            SearchableLogic logic = worstChain(size);
+            Position corner = Position.of(0, 0);
+            String board = size + "x" + size;
+            measure("GameLogic.countFlips/worstChain" + board, i -> logic.countFlips(corner));
+            measure("GameLogic.makeMove+unmakeMove/worstChain" + board, i -> {
+                boolean made = logic.makeMove(0, SearchableLogic.SIMPLE);
+                logic.unmakeMove();
+                return made ? 1 : 0;
+            });
+        }
+    }
+
+    /**
+     * Builds the worst-case bomb chain on a GameLogic board: every square holds a bomb of player 2, except
+     * the corner (0, 0), which is empty, and (0, 2), which holds a disc of player 1. Player 1 moving in the
+     * corner flips the bomb on (0, 1), and the chain reaction then flips every other bomb on the board.
+     *
+     * @param size The size of the board.
+     * @return The engine, with player 1 to move.
+     */
+    static SearchableLogic worstChain(int size) {
+        SearchableLogic logic = new GameLogic(size);
+        logic.setLogger(NoOpGameLogger.INSTANCE);
+        logic.setPlayers(new HumanPlayer(true), new HumanPlayer(false));
+        logic.reset();
+        int[] owners = new int[size * size];
+        int[] discTypes = new int[size * size];
+        Arrays.fill(owners, 2);
+        Arrays.fill(discTypes, SearchableLogic.BOMB);
+        owners[0] = 0;
+        discTypes[0] = SearchableLogic.SIMPLE;
+        owners[2] = 1;
+        discTypes[2] = SearchableLogic.SIMPLE;
+        logic.loadPosition(owners, discTypes, true);
+        return logic;
+    }
+
+    /**
+     * Runs the benchmarks of one engine on one phase of the corpus.
+     *
+     * @param pattern The benchmark name, with %s for the operation.
+     * @param samples The positions.
+     * @param engines The positions loaded into the engine.
+     */
+    private void benchmarkEngine(String pattern, List<Sample> samples, SearchableLogic[] engines) {
+        int n = engines.length;
+        Position[] squares = squares(samples);
+        measure(String.format(pattern, "ValidMoves"), i -> engines[(int) (i % n)].ValidMoves().size());
+        measure(String.format(pattern, "countFlips"), i -> engines[(int) (i % n)].countFlips(squares[(int) (i % n)]));
+        measure(String.format(pattern, "locate_disc+undoLastMove"), i -> {
+            SearchableLogic logic = engines[(int) (i % n)];
+            boolean placed = logic.locate_disc(squares[(int) (i % n)], new SimpleDisc(logic.getCurrentPlayer()));
+            logic.undoLastMove();
+            return placed ? 1 : 0;
+        });
+        GreedyAI greedy = new GreedyAI(true);
+        RandomAI randomAI = new RandomAI(true);
+        measure(String.format(pattern, "GreedyAI.makeMove"), i -> greedy.makeMove(engines[(int) (i % n)]).position().row());
+        measure(String.format(pattern, "RandomAI.makeMove"), i -> randomAI.makeMove(engines[(int) (i % n)]).position().col());
+    }
+
+    // Return the benchmark square of every sample as a Position
+    private static Position[] squares(List<Sample> samples) {
+        Position[] squares = new Position[samples.size()];
+        for (int i = 0; i < squares.length; i++) {
+            squares[i] = Position.of(samples.get(i).square / 8, samples.get(i).square % 8);
+        }
+        return squares;
+    }
+
+    /**
+     * Warms up and measures one benchmark, and records its result.
+     *
+     * @param name The name of the benchmark.
+     * @param operation The operation.
+     */
+    private void measure(String name, Operation operation) {
+        if (filter != null && !name.contains(filter))
+            return;
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long result = 0;
+        for (int i = 0; i < warmupIterations; i++) {
+            result += iterate(operation)[0];
+        }
+        double[] nsPerOp = new double[measureIterations];
+        double bytesPerOp = Double.MAX_VALUE;
+        for (int i = 0; i < measureIterations; i++) {
+            long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+            long[] run = iterate(operation);
+            long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+            nsPerOp[i] = (double) run[1] / run[0];
+            // The lowest iteration, so that a stray allocation of the JVM does not count
+            bytesPerOp = Math.min(bytesPerOp, (double) allocated / run[0]);
+            result += run[2];
+        }
+        sink += result;
+        double mean = 0, variance = 0;
+        for (double value : nsPerOp) {
+            mean += value / nsPerOp.length;
+        }
+        for (double value : nsPerOp) {
+            variance += (value - mean) * (value - mean) / Math.max(1, nsPerOp.length - 1);
+        }
+        results.put(name, new double[]{mean, Math.sqrt(variance), bytesPerOp});
+        order.add(name);
+    }
+
+    /**
+     * Runs an operation over and over for one iteration.
+     *
+     * @param operation The operation.
+     * @return The number of calls, the time taken in ns, and the sum of the results.
+     */
+    private long[] iterate(Operation operation) {
+        long calls = 0;
+        long sum = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            for (int k = 0; k < 256; k++) {
+                sum += operation.run(calls++);
+            }
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < iterationNanos);
+        return new long[]{calls, elapsed, sum};
+    }
+
+    /**
+     * Prints the results as a table.
+     *
+     * @param out The stream to print to.
+     */
+    public void printResults(PrintStream out) {
+        out.printf("%-52s %12s %10s %12s%n", "Benchmark", "ns/op", "error", "bytes/op");
+        for (String name : order) {
+            double[] r = results.get(name);
+            out.printf("%-52s %12.1f %10.1f %12.1f%n", name, r[0], r[1], r[2]);
+        }
+    }
+
+    /**
+     * Saves the results as a baseline: one line per benchmark with its name, ns/op and bytes/op.
+     *
+     * @param file The file to write.
+     * @throws IOException If the file cannot be written.
+     */
+    public void writeBaseline(Path file) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("# benchmark\tns/op\tbytes/op (written by EngineBenchmark --write-baseline)");
+        for (String name : order) {
+            double[] r = results.get(name);
+            lines.add(String.format("%s\t%.1f\t%.1f", name, r[0], r[2]));
+        }
+        Files.write(file, lines, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Compares the results with a baseline and prints every regression.
+     *
+     * @param file The baseline written by writeBaseline.
+     * @param tolerance The allowed slowdown, as a fraction (0.2 for 20%).
+     * @param out The stream to print to.
+     * @return true if no benchmark regressed.
+     * @throws IOException If the file cannot be read.
+     */
+    public boolean checkBaseline(Path file, double tolerance, PrintStream out) throws IOException {
+        boolean passed = true;
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            if (line.isBlank() || line.startsWith("#"))
+                continue;
+            String[] fields = line.split("\t");
+            double[] r = results.get(fields[0]);
+            if (r == null)
+                continue;  // Not run this time (filtered out)
+            double baseNs = Double.parseDouble(fields[1]);
+            double baseBytes = Double.parseDouble(fields[2]);
+            if (r[0] > baseNs * (1 + tolerance)) {
+                out.printf("REGRESSION %s: %.1f ns/op, baseline %.1f ns/op (%+.0f%%)%n",
+                        fields[0], r[0], baseNs, 100 * (r[0] / baseNs - 1));
+                passed = false;
+            }
+            if (r[2] > baseBytes + ALLOCATION_SLACK) {
+                out.printf("REGRESSION %s: %.1f bytes/op, baseline %.1f bytes/op%n", fields[0], r[2], baseBytes);
+                passed = false;
+            }
+        }
+        return passed;
+    }
+
+    /**
+     * Runs the benchmarks from the command line; see the class comment for the options.
+     *
+     * @param args The command-line arguments.
+     * @throws IOException If a baseline file cannot be read or written.
+     */
+    public static void main(String[] args) throws IOException {
+        // Measure the engines themselves, unless the metrics are asked for explicitly
+        if (System.getProperty("reversi.metrics") == null)
+            System.setProperty("reversi.metrics", "false");
+        boolean quick = false;
+        String filter = null;
+        Path baseline = null;
+        Path newBaseline = null;
+        double tolerance = 0.2;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--quick": quick = true; break;
+                case "--filter": filter = args[++i]; break;
+                case "--baseline": baseline = Path.of(args[++i]); break;
+                case "--write-baseline": newBaseline = Path.of(args[++i]); break;
+                case "--tolerance": tolerance = Double.parseDouble(args[++i]); break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        EngineBenchmark benchmark = quick ? new EngineBenchmark(2, 3, 100, filter) : new EngineBenchmark(5, 5, 300, filter);
+        benchmark.runAll();
+        benchmark.printResults(System.out);
+        if (newBaseline != null)
+            benchmark.writeBaseline(newBaseline);
+        if (baseline != null && !benchmark.checkBaseline(baseline, tolerance, System.out))
+            System.exit(1);
+    }
+}
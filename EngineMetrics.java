@@ -0,0 +1,244 @@
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Metrics of the engines and the AI players, cheap enough to leave on in a running game:
+ * - the call times of the PlayableLogic calls ValidMoves, locate_disc, countFlips and undoLastMove
+ *   (the allocation-free SearchableLogic calls the searches make are not measured);
+ * - the makeMove times of every AI player type;
+ * - the positions searched, the Monte Carlo playouts, and the hit rates of the transposition table and
+ *   of the opening book.
+ * Everything is kept in LatencyHistograms and LongAdders, so recording takes no lock. Every call is
+ * counted, but two System.nanoTime() calls cost more than a cached ValidMoves, so each engine and each
+ * quick AI player (RandomAI, GreedyAI) only times one call in SAMPLE_PERIOD of its own; the searching
+ * AIs time every move. The searches add their counts once per move, not once per position, so the search
+ * loops stay as they are.
+ *
+ * The metrics are registered as MBeans under the domain "reversi" (type=Engine and type=AIPlayer for the
+ * call times, type=Search for the counters), so jconsole or any JMX client can read them, and
+ * report() formats them all as text. With the system property "reversi.metrics.dump" set to a number of
+ * seconds, the report is printed to System.err at that period. Setting "reversi.metrics" to false turns
+ * the call counting and timing off; EngineBenchmark does so unless the property is given.
+ */
+public final class EngineMetrics implements EngineMetricsMBean {
+
+    // Whether the calls are counted and timed; read once, so the JIT drops the timing code when it is off
+    static final boolean ENABLED = !"false".equals(System.getProperty("reversi.metrics"));
+    // One call in this many (a power of two) is timed by each engine and quick AI player
+    static final int SAMPLE_PERIOD = 64;
+    // The start value of a call that is only counted, not timed
+    static final long NOT_TIMED = Long.MIN_VALUE;
+    // JMX domain of the MBeans
+    private static final String DOMAIN = "reversi";
+
+    // Call times of the engine operations
+    public static final LatencyHistogram VALID_MOVES = new LatencyHistogram("ValidMoves");
+    public static final LatencyHistogram LOCATE_DISC = new LatencyHistogram("locate_disc");
+    public static final LatencyHistogram COUNT_FLIPS = new LatencyHistogram("countFlips");
+    public static final LatencyHistogram UNDO_LAST_MOVE = new LatencyHistogram("undoLastMove");
+    private static final LatencyHistogram[] ENGINE_CALLS = {VALID_MOVES, LOCATE_DISC, COUNT_FLIPS, UNDO_LAST_MOVE};
+    // makeMove times of every AI player type, by class name
+    private static final Map<String, LatencyHistogram> MOVE_TIMES = new ConcurrentHashMap<>();
+
+    private static final LongAdder nodes = new LongAdder();
+    private static final LongAdder playouts = new LongAdder();
+    private static final LongAdder tableProbes = new LongAdder();
+    private static final LongAdder tableHits = new LongAdder();
+    private static final LongAdder bookProbes = new LongAdder();
+    private static final LongAdder bookHits = new LongAdder();
+
+    private static final EngineMetrics INSTANCE = new EngineMetrics();
+
+    static {
+        register(INSTANCE, "type=Search");
+        for (LatencyHistogram histogram : ENGINE_CALLS) {
+            register(histogram, "type=Engine,name=" + histogram.getName());
+        }
+        long period = Long.getLong("reversi.metrics.dump", 0);
+        if (period > 0)
+            startDump(System.err, period);
+    }
+
+    private EngineMetrics() {
+    }
+
+    /**
+     * Returns the start time of a call to measure with LatencyHistogram.recordSince, timing every call.
+     *
+     * @return System.nanoTime(), or NOT_TIMED if metrics are off.
+     */
+    static long start() {
+        return ENABLED ? System.nanoTime() : NOT_TIMED;
+    }
+
+    /**
+     * Returns the start time of a call to measure with LatencyHistogram.recordSince, timing one call
+     * in SAMPLE_PERIOD.
+     *
+     * @param call The number of the call, counted by the caller (one counter per engine or player).
+     * @return System.nanoTime() for a sampled call, or else NOT_TIMED.
+     */
+    static long sample(int call) {
+        return ENABLED && (call & (SAMPLE_PERIOD - 1)) == 0 ? System.nanoTime() : NOT_TIMED;
+    }
+
+    /**
+     * Returns the histogram of the makeMove times of an AI player type, registering it on first use.
+     *
+     * @param type The simple class name of the AI player.
+     * @return The histogram.
+     */
+    static LatencyHistogram moveTimes(String type) {
+        LatencyHistogram histogram = MOVE_TIMES.get(type);
+        if (histogram != null)
+            return histogram;
+        return MOVE_TIMES.computeIfAbsent(type, name -> {
+            LatencyHistogram created = new LatencyHistogram(name + ".makeMove");
+            register(created, "type=AIPlayer,name=" + name);
+            return created;
+        });
+    }
+
+    /**
+     * Adds the counts of a finished alpha-beta search.
+     *
+     * @param searchNodes The positions visited.
+     * @param probes The transposition table lookups.
+     * @param hits The lookups that found an entry.
+     */
+    static void addSearch(long searchNodes, long probes, long hits) {
+        nodes.add(searchNodes);
+        tableProbes.add(probes);
+        tableHits.add(hits);
+    }
+
+    // Add the positions visited by an endgame solve
+    static void addNodes(long count) {
+        nodes.add(count);
+    }
+
+    // Add the playouts of a Monte Carlo tree search
+    static void addPlayouts(long count) {
+        playouts.add(count);
+    }
+
+    // Count an opening book lookup, and whether it found a move
+    static void addBookProbe(boolean hit) {
+        bookProbes.increment();
+        if (hit)
+            bookHits.increment();
+    }
+
+    // Register an MBean under the reversi domain; a failure is reported once and the metrics go on without JMX
+    private static void register(Object bean, String properties) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(DOMAIN + ":" + properties);
+            if (!server.isRegistered(name))
+                server.registerMBean(bean, name);
+        } catch (JMException | SecurityException e) {
+            System.err.println("Metrics not registered in JMX: " + e);
+        }
+    }
+
+    /**
+     * Prints the report to a stream at a fixed period, from a daemon thread, until the program ends.
+     *
+     * @param out The stream to print to.
+     * @param periodSeconds The time between two reports, in seconds.
+     */
+    public static void startDump(PrintStream out, long periodSeconds) {
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.scheduleAtFixedRate(() -> out.print(report()), periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Formats all the metrics as text: one line per engine call and AI player type, then the search counters.
+     *
+     * @return The report, ending with a line break.
+     */
+    public static String report() {
+        StringBuilder report = new StringBuilder("Engine and AI metrics\n");
+        for (LatencyHistogram histogram : ENGINE_CALLS) {
+            report.append("  ").append(histogram.summary()).append('\n');
+        }
+        for (LatencyHistogram histogram : new TreeMap<>(MOVE_TIMES).values()) {
+            report.append("  ").append(histogram.summary()).append('\n');
+        }
+        report.append(String.format("  nodes %d, playouts %d, table hits %d/%d (%.1f%%), book hits %d/%d (%.1f%%)%n",
+                INSTANCE.getNodes(), INSTANCE.getPlayouts(), INSTANCE.getTableHits(), INSTANCE.getTableProbes(),
+                100 * INSTANCE.getTableHitRate(), INSTANCE.getBookHits(), INSTANCE.getBookProbes(),
+                100 * INSTANCE.getBookHitRate()));
+        return report.toString();
+    }
+
+    // Return the number of positions visited by the alpha-beta searches and the endgame solver
+    @Override
+    public long getNodes() {
+        return nodes.sum();
+    }
+
+    // Return the number of playouts run by the Monte Carlo tree searches
+    @Override
+    public long getPlayouts() {
+        return playouts.sum();
+    }
+
+    // Return the number of transposition table lookups of the alpha-beta searches
+    @Override
+    public long getTableProbes() {
+        return tableProbes.sum();
+    }
+
+    // Return the number of those lookups that found an entry
+    @Override
+    public long getTableHits() {
+        return tableHits.sum();
+    }
+
+    // Return the part of the transposition table lookups that found an entry, between 0 and 1
+    @Override
+    public double getTableHitRate() {
+        long probes = getTableProbes();
+        return probes == 0 ? 0 : (double) getTableHits() / probes;
+    }
+
+    // Return the number of opening book lookups
+    @Override
+    public long getBookProbes() {
+        return bookProbes.sum();
+    }
+
+    // Return the number of those lookups that found a move
+    @Override
+    public long getBookHits() {
+        return bookHits.sum();
+    }
+
+    // Return the part of the opening book lookups that found a move, between 0 and 1
+    @Override
+    public double getBookHitRate() {
+        long probes = getBookProbes();
+        return probes == 0 ? 0 : (double) getBookHits() / probes;
+    }
+
+    // Return the whole metrics report, as the periodic dump prints it
+    @Override
+    public String getReport() {
+        return report();
+    }
+}
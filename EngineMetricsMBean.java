@@ -0,0 +1,33 @@
+/**
+ * The JMX view of the search counters of EngineMetrics. The call times of the engine and of the AI
+ * players are registered as LatencyHistogramMBeans of their own.
+ */
+public interface EngineMetricsMBean {
+
+    // Return the number of positions visited by the alpha-beta searches and the endgame solver
+    long getNodes();
+
+    // Return the number of playouts run by the Monte Carlo tree searches
+    long getPlayouts();
+
+    // Return the number of transposition table lookups of the alpha-beta searches
+    long getTableProbes();
+
+    // Return the number of those lookups that found an entry
+    long getTableHits();
+
+    // Return the part of the transposition table lookups that found an entry, between 0 and 1
+    double getTableHitRate();
+
+    // Return the number of opening book lookups
+    long getBookProbes();
+
+    // Return the number of those lookups that found a move
+    long getBookHits();
+
+    // Return the part of the opening book lookups that found a move, between 0 and 1
+    double getBookHitRate();
+
+    // Return the whole metrics report, as the periodic dump prints it
+    String getReport();
+}
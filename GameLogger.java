@@ -0,0 +1,75 @@
+/**
+ * The GameLogger interface receives the events that the game logic used to print with System.out.
+ * Events are passed as primitives, so the game thread does no string building; each implementation
+ * decides if and where the text is formatted.
+ * Disc types use the codes of SearchableLogic (SIMPLE, BOMB, UNFLIPPABLE).
+ */
+public interface GameLogger {
+
+    /**
+     * A player placed a disc.
+     *
+     * @param firstPlayer true if the disc was placed by player 1.
+     * @param discType The type of the placed disc.
+     * @param row The row of the disc.
+     * @param col The column of the disc.
+     */
+    void discPlaced(boolean firstPlayer, int discType, int row, int col);
+
+    /**
+     * A disc was flipped by the move of a player.
+     *
+     * @param firstPlayer true if the move was made by player 1.
+     * @param discType The type of the flipped disc.
+     * @param row The row of the disc.
+     * @param col The column of the disc.
+     */
+    void discFlipped(boolean firstPlayer, int discType, int row, int col);
+
+    /**
+     * All the events of the last move were reported.
+     */
+    void moveFinished();
+
+    /**
+     * An undo was requested.
+     */
+    void undoStarted();
+
+    /**
+     * An undo was requested, but there is no move to undo.
+     */
+    void undoUnavailable();
+
+    /**
+     * The undo removed the disc placed by the last move.
+     *
+     * @param discType The type of the removed disc.
+     * @param row The row of the disc.
+     * @param col The column of the disc.
+     */
+    void undoRemoved(int discType, int row, int col);
+
+    /**
+     * The undo flipped a disc back to its previous owner.
+     *
+     * @param discType The type of the flipped disc.
+     * @param row The row of the disc.
+     * @param col The column of the disc.
+     */
+    void undoFlipped(int discType, int row, int col);
+
+    /**
+     * All the events of the undo were reported.
+     */
+    void undoFinished();
+
+    /**
+     * The game ended with a winner.
+     *
+     * @param winner 1 if player 1 won, 2 if player 2 won.
+     * @param count1 The number of discs of player 1.
+     * @param count2 The number of discs of player 2.
+     */
+    void gameWon(int winner, int count1, int count2);
+}
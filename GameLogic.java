@@ -1,11 +1,18 @@
 import java.util.*;
 
 
-public class GameLogic implements PlayableLogic {
-    // The size of the game board (8x8)
-    private final int boardSize = 8;
-    // The game board represented by a 2D array of Disc objects
-    private Disc[][] gameBoard = new Disc[boardSize][boardSize];
+public class GameLogic implements SearchableLogic {
+    // The smallest and the largest supported board sizes
+    public static final int MIN_BOARD_SIZE = 4;
+    public static final int MAX_BOARD_SIZE = 32;
+    // The size of the game board (8x8 unless another size is given to the constructor)
+    private final int boardSize;
+    // The board as bitsets over the encoded squares (bit square % 64 of word square / 64):
+    // the discs of player 1 (index 0) and player 2 (index 1), and the squares holding a BombDisc / an UnflippableDisc
+    private final int words;
+    private final long[][] discBits;
+    private final long[] bombBits;
+    private final long[] unflippableBits;
     // Player 1 and Player 2 objects
     private Player player1;
     private Player player2;
@@ -15,18 +22,83 @@ public class GameLogic implements PlayableLogic {
     private Stack<Move> historyMoves = new Stack<>();
     // A boolean indicating if the game mode is only human players (true) or AI can also play (false)
     private boolean onlyHumen;
-    // Array that stores all possible directions a move can go in (8 directions)
-    private Position[] arrDirections = new Position[8];
-    // Initialize the direction array with the possible 8 directions
-    {
-        arrDirections[0] = new Position(1, 1);
-        arrDirections[1] = new Position(1, 0);
-        arrDirections[2] = new Position(-1, 0);
-        arrDirections[3] = new Position(-1, 1);
-        arrDirections[4] = new Position(1, -1);
-        arrDirections[5] = new Position(-1, -1);
-        arrDirections[6] = new Position(0, 1);
-        arrDirections[7] = new Position(0, -1);
+    // Receives the placement, flip, undo and winner events (printed to the console by default)
+    private GameLogger logger = new ConsoleGameLogger();
+    // Cached legality of every square for player 1 (index 0) and player 2 (index 1), as bitsets
+    private final long[][] legal;
+    // Squares whose cached legality may be stale, per player, kept both as a bitset and as a list
+    private final long[][] dirty;
+    private final int[][] dirtySquares;
+    private final int[] dirtyCount = new int[2];
+    // Empty squares that touch at least one disc; only these can ever be valid moves
+    private final long[] frontier;
+    // The valid moves of each player as encoded squares, valid while cacheValid is true
+    private final int[][] legalMoves;
+    private final int[] legalCount = new int[2];
+    private final boolean[] cacheValid = new boolean[2];
+    // The same valid moves as an unmodifiable list of positions, built on the first ValidMoves() call of a ply
+    @SuppressWarnings("unchecked")
+    private final List<Position>[] legalPositions = (List<Position>[]) new List<?>[2];
+    // PlayableLogic calls so far, to time one in EngineMetrics.SAMPLE_PERIOD
+    private int meteredCalls;
+    // Stack of the moves made by makeMove: the square, the disc type and where its flips start in searchFlips
+    private final int[] searchSquares;
+    private final int[] searchTypes;
+    private final int[] searchFlipStart;
+    private int searchDepth = 0;
+    // The squares flipped by the moves on the makeMove stack, and a bitset of the squares already
+    // collected for the current move (cleared again once the move's flips are known)
+    private int[] searchFlips;
+    private int searchFlipCount = 0;
+    private final long[] flipVisited;
+    // The squares next to every square, and the ray of every square in every direction
+    // (see BoardGeometry), shared by all engines of this board size
+    private final int[][] neighbours;
+    private final int[][] rays;
+    // Zobrist key of the current position, and the keys before each move on the makeMove stack
+    private final Zobrist zobrist;
+    private long hash;
+    private final long[] searchHashes;
+
+    /**
+     * Constructs a game on the standard 8x8 board.
+     */
+    public GameLogic() {
+        this(8);
+    }
+
+    /**
+     * Constructs a game on a square board of the given size.
+     * The board is stored as bitsets and every table is sized from the board, so large boards cost
+     * memory in proportion to their number of squares and no objects per square.
+     *
+     * @param boardSize The number of rows (and columns), from MIN_BOARD_SIZE to MAX_BOARD_SIZE.
+     */
+    public GameLogic(int boardSize) {
+        if (boardSize < MIN_BOARD_SIZE || boardSize > MAX_BOARD_SIZE)
+            throw new IllegalArgumentException("Board size must be between " + MIN_BOARD_SIZE + " and "
+                    + MAX_BOARD_SIZE + ": " + boardSize);
+        this.boardSize = boardSize;
+        int squares = boardSize * boardSize;
+        words = (squares + 63) >>> 6;
+        discBits = new long[2][words];
+        bombBits = new long[words];
+        unflippableBits = new long[words];
+        legal = new long[2][words];
+        dirty = new long[2][words];
+        dirtySquares = new int[2][squares];
+        frontier = new long[words];
+        legalMoves = new int[2][squares];
+        searchSquares = new int[squares];
+        searchTypes = new int[squares];
+        searchFlipStart = new int[squares];
+        searchFlips = new int[4 * squares];
+        flipVisited = new long[words];
+        BoardGeometry geometry = BoardGeometry.forBoardSize(boardSize);
+        neighbours = geometry.neighbours();
+        rays = geometry.rays();
+        zobrist = Zobrist.forBoardSize(boardSize);
+        searchHashes = new long[squares];
     }
 
     /**
@@ -40,15 +112,20 @@ public class GameLogic implements PlayableLogic {
      */
     @Override
     public boolean locate_disc(Position a, Disc disc) {
-        String str;
+        long start = EngineMetrics.sample(++meteredCalls);
+        boolean placed = placeDisc(a, disc);
+        EngineMetrics.LOCATE_DISC.recordSince(start);
+        return placed;
+    }
+
+    // Place a disc for locate_disc, logging the move
+    private boolean placeDisc(Position a, Disc disc) {
         Player player = getCurrentPlayer();
         // Determine which player is making the move
-        if (player.equals(player1))
-            str = "Player 1";
-        else
-            str = "Player 2";
+        boolean first = player.equals(player1);
+        int square = a.row() * boardSize + a.col();
         // Check if the move is valid
-        if (ValidMoves().contains(a)) {
+        if (isLegal(square)) {
             // Handle special discs (Bomb or Unflippable)
             if (disc instanceof BombDisc) {
                 if (player.getNumber_of_bombs() == 0)
@@ -62,144 +139,367 @@ public class GameLogic implements PlayableLogic {
                 else
                     player.reduce_unflippedable();  // Deduct unflippable disc usage
             }
-            gameBoard[a.row()][a.col()] = disc;  // Place the disc on the board
-            System.out.println(str + " placed a " + disc.getType() + " in " + a.toString());
-            HashSet<Position> positionsToFlip = new HashSet<>();
-
-            flipsForLocation(a,positionsToFlip);
+            put(square, first ? 0 : 1, SearchableLogic.typeOf(disc));  // Place the disc on the board
+            discPlaced(square);
+            logger.discPlaced(first, SearchableLogic.typeOf(disc), a.row(), a.col());
+            // Collect the flips on top of the makeMove flip stack, without pushing them
+            int end = collectFlips(square, first ? 0 : 1);
 
             Stack<Position> history=new Stack<>();
-            for (Position pos : positionsToFlip) {
+            for (int k = searchFlipCount; k < end; k++) {
+                int sq = searchFlips[k];
+                Position pos = Position.of(sq / boardSize, sq % boardSize);
                 history.add(pos);
-                Disc dTemp=getDiscAtPosition(pos);
-                dTemp.setOwner(player);
-                System.out.println(str + " flipped the " + dTemp.getType() + " in " + pos.toString());
+                setOwner(sq, first ? 0 : 1);
+                squareChanged(sq);
+                logger.discFlipped(first, typeAt(sq), pos.row(), pos.col());
             }
             Move move = new Move(disc, a, history);
             historyMoves.push(move);
             turn = !turn;  // Toggle player turn
-            System.out.println();
+            hash = zobrist.hash(this);
+            logger.moveFinished();
             return true;
         }
         return false;
     }
-/**
- * Checks all 8 directions from the given position to find and record discs that need to be flipped.
-            * It iterates through all possible directions and flips any opponent's discs between the given position
-            * and the next owned disc.
- *
-         * @param pos The position on the board where the disc is placed.
- * @param setFlip A set to keep track of the discs that need to be flipped.
-            */
-    private void flipsForLocation(Position pos, HashSet<Position> setFlip) {
+    /**
+     * Places a disc for the current player without logging and without creating Move or Stack objects.
+     * The flipped squares are kept on a primitive stack, so unmakeMove() can restore the position exactly.
+     * See SearchableLogic.makeMove.
+     *
+     * @param square The encoded square where the disc is placed.
+     * @param discType The type of the disc: SIMPLE, BOMB or UNFLIPPABLE.
+     * @return true if the move was valid and made.
+     */
+    @Override
+    public boolean makeMove(int square, int discType) {
+        if (!isLegal(square))
+            return false;
         Player player = getCurrentPlayer();
+        int me = turn ? 1 : 2;
+        searchHashes[searchDepth] = hash;
+        if (discType == BOMB) {
+            if (player.getNumber_of_bombs() == 0)
+                return false;
+            hash ^= zobrist.bombs(me, player.getNumber_of_bombs()) ^ zobrist.bombs(me, player.getNumber_of_bombs() - 1);
+            player.reduce_bomb();
+        } else if (discType == UNFLIPPABLE) {
+            if (player.getNumber_of_unflippedable() == 0)
+                return false;
+            hash ^= zobrist.unflippables(me, player.getNumber_of_unflippedable())
+                    ^ zobrist.unflippables(me, player.getNumber_of_unflippedable() - 1);
+            player.reduce_unflippedable();
+        }
+        hash ^= zobrist.disc(square, me, discType) ^ zobrist.side();
+        put(square, me - 1, discType);
+        discPlaced(square);
+
+        int start = searchFlipCount;
+        int end = collectFlips(square, me - 1);
+        for (int k = start; k < end; k++) {
+            int sq = searchFlips[k];
+            setOwner(sq, me - 1);
+            int type = typeAt(sq);
+            hash ^= zobrist.disc(sq, 3 - me, type) ^ zobrist.disc(sq, me, type);
+            squareChanged(sq);
+        }
+        searchSquares[searchDepth] = square;
+        searchTypes[searchDepth] = discType;
+        searchFlipStart[searchDepth] = start;
+        searchDepth++;
+        searchFlipCount = end;
+        turn = !turn;
+        return true;
+    }
+
+    /**
+     * Plays a sequence of moves with makeMove, dropping the undo information after every move.
+     * See SearchableLogic.playMoves.
+     */
+    @Override
+    public int playMoves(int[] moves, int count, int[] flips) {
+        historyMoves.clear();
+        searchDepth = 0;
+        searchFlipCount = 0;
+        int played = 0;
+        while (played < count && makeMove(SearchableLogic.moveSquare(moves[played]), SearchableLogic.moveType(moves[played]))) {
+            // The move's flips are the only ones on the search stack
+            if (flips != null)
+                flips[played] = searchFlipCount;
+            searchDepth = 0;
+            searchFlipCount = 0;
+            played++;
+        }
+        return played;
+    }
 
-        for (Position arrDirection : arrDirections) {
-            int xDirection = arrDirection.col();
-            int yDirection = arrDirection.row();
-            processDirection(pos, xDirection, yDirection, player, setFlip);
+    /**
+     * Takes back the last move made by makeMove: flips the discs back, removes the placed disc and
+     * gives back the bomb or unflippable disc that was used. Nothing is logged.
+     */
+    @Override
+    public void unmakeMove() {
+        searchDepth--;
+        turn = !turn;
+        Player player = getCurrentPlayer();
+        int opponent = turn ? 1 : 0;
+        int start = searchFlipStart[searchDepth];
+        for (int k = searchFlipCount - 1; k >= start; k--) {
+            int sq = searchFlips[k];
+            setOwner(sq, opponent);
+            squareChanged(sq);
         }
+        searchFlipCount = start;
+        int square = searchSquares[searchDepth];
+        remove(square);
+        discRemoved(square);
+        if (searchTypes[searchDepth] == BOMB) player.increase_bomb();
+        else if (searchTypes[searchDepth] == UNFLIPPABLE) player.increase_unflippedable();
+        hash = searchHashes[searchDepth];
     }
 
     /**
-     * Processes a single direction from the specified position to check for opponent's discs to flip.
-     * It adds discs to the flip set if they are between the placed disc and the player's own discs.
+     * Sets up an arbitrary position; see SearchableLogic.loadPosition.
      *
-     * @param pos The position on the board where the disc is placed.
-     * @param xDirection The direction in the x-axis to check.
-     * @param yDirection The direction in the y-axis to check.
-     * @param player The current player who is making the move.
-     * @param setFlip A set to keep track of the discs that need to be flipped.
+     * @param owners The owner of every encoded square.
+     * @param discTypes The disc type of every encoded square.
+     * @param firstPlayerTurn true if player 1 is to move.
      */
-    private void processDirection(Position pos, int xDirection, int yDirection, Player player, HashSet<Position> setFlip) {
-        Stack<Disc> temp = new Stack<>();
-        Stack<Position> tempHistory = new Stack<>();
-        for (int x = pos.row() + xDirection, y = pos.col() + yDirection;
-             x >= 0 && x < boardSize && y >= 0 && y < boardSize;
-             x += xDirection, y += yDirection) {
-
-            if (gameBoard[x][y] == null) {
-                break;
-            }
+    @Override
+    public void loadPosition(int[] owners, int[] discTypes, boolean firstPlayerTurn) {
+        clearBoard();
+        for (int square = 0; square < boardSize * boardSize; square++) {
+            if (owners[square] != 0)
+                put(square, owners[square] - 1, discTypes[square]);
+        }
+        turn = firstPlayerTurn;
+        onlyHumen = player1.isHuman() && player2.isHuman();
+        historyMoves.clear();
+        searchDepth = 0;
+        searchFlipCount = 0;
+        invalidateAll();
+        hash = zobrist.hash(this);
+    }
 
-            Disc disc = gameBoard[x][y];
-            if (disc.getOwner().equals(player)) {
-                recordFlips( tempHistory, setFlip);
-                break;
-            } else {
-                tempHistory.push(new Position(x, y));
-                temp.push(disc);
-            }
+    // Take a snapshot of the position by copying the bitsets of the board; see SearchableLogic.snapshot
+    @Override
+    public GameState snapshot() {
+        return new GameState(boardSize, discBits[0].clone(), discBits[1].clone(), bombBits.clone(),
+                unflippableBits.clone(), turn,
+                player1.getNumber_of_bombs(), player1.getNumber_of_unflippedable(),
+                player2.getNumber_of_bombs(), player2.getNumber_of_unflippedable());
+    }
+
+    /**
+     * Sets up the position of a snapshot; see SearchableLogic.loadState.
+     *
+     * @param state The state to load.
+     */
+    @Override
+    public void loadState(GameState state) {
+        if (state.getBoardSize() != boardSize)
+            throw new IllegalArgumentException("A " + state.getBoardSize() + "x" + state.getBoardSize()
+                    + " state does not fit a " + boardSize + "x" + boardSize + " board");
+        state.copyBits(0, discBits[0]);
+        state.copyBits(1, discBits[1]);
+        state.copyBits(2, bombBits);
+        state.copyBits(3, unflippableBits);
+        player1.set_bombs_and_unflippedable(state.getBombs(true), state.getUnflippables(true));
+        player2.set_bombs_and_unflippedable(state.getBombs(false), state.getUnflippables(false));
+        turn = state.isFirstPlayerTurn();
+        onlyHumen = player1.isHuman() && player2.isHuman();
+        historyMoves.clear();
+        searchDepth = 0;
+        searchFlipCount = 0;
+        invalidateAll();
+        hash = zobrist.hash(this);
+    }
+
+    /**
+     * Creates an independent GameLogic with the same board, side to move and inventories.
+     * See SearchableLogic.copy.
+     *
+     * @return The copy.
+     */
+    @Override
+    public SearchableLogic copy() {
+        GameLogic copy = new GameLogic(boardSize);
+        copy.player1 = Player.copyOf(player1);
+        copy.player2 = Player.copyOf(player2);
+        copy.logger = NoOpGameLogger.INSTANCE;
+        for (int p = 0; p < 2; p++) {
+            System.arraycopy(discBits[p], 0, copy.discBits[p], 0, words);
         }
-        temp.clear();
+        System.arraycopy(bombBits, 0, copy.bombBits, 0, words);
+        System.arraycopy(unflippableBits, 0, copy.unflippableBits, 0, words);
+        copy.turn = turn;
+        copy.invalidateAll();
+        copy.hash = hash;
+        return copy;
+    }
 
+    // Return the Zobrist key of the current position
+    @Override
+    public long hashKey() {
+        return hash;
     }
+
     /**
-     * Records the positions of the discs that should be flipped.
-     * Adds discs to the flip set only if they are not already in the set, and ensures they are not unflippable discs.
+     * Pushes onto searchFlips the squares that a disc of the player on (row, col) flips.
+     * The runs of opponent's discs closed by the player's disc are collected first. The collected squares
+     * then serve as the worklist of the bomb chain reaction: every bomb on it adds its flippable neighbours
+     * that are not collected yet, and those bombs are reached in turn further down the list.
+     * The visited bitset makes every square enter the list at most once, so a chain costs time linear in
+     * the number of squares it affects, needs no recursion and allocates nothing.
+     * The disc itself does not need to be on the board, so this also counts the flips of a move not made.
      *
-     * @param tempHistory A stack of positions that have been identified for flipping.
-     * @param setFlip A set to store the positions of discs to be flipped.
+     * @param square The encoded square of the placed disc.
+     * @param me The index of the player who placed the disc (0 for player 1, 1 for player 2).
+     * @return The new top of searchFlips; the flipped squares are the ones from searchFlipCount up to it.
      */
-    private void recordFlips(Stack<Position> tempHistory, HashSet<Position> setFlip) {
-        while (!tempHistory.empty()) {
-            Position positionTemp = tempHistory.pop();
-            Disc discTemp=getDiscAtPosition(positionTemp);
-            if (!setFlip.contains(positionTemp)) {
-                if (!(discTemp instanceof UnflippableDisc)) {
-                    setFlip.add(positionTemp);
-                    if (discTemp instanceof BombDisc) {
-                        addFlipsForBomb(positionTemp, setFlip);
-                    }
+    private int collectFlips(int square, int me) {
+        while (searchFlips.length < searchFlipCount + boardSize * boardSize)
+            searchFlips = Arrays.copyOf(searchFlips, 2 * searchFlips.length);
+        int end = searchFlipCount;
+        int base = square * BoardGeometry.DIRECTIONS;
+        for (int d = 0; d < BoardGeometry.DIRECTIONS; d++) {
+            int[] ray = rays[base + d];
+            int k = 0;
+            while (k < ray.length && ownerIndex(ray[k]) == 1 - me)
+                k++;
+            if (k == ray.length || !occupied(ray[k]))
+                continue;  // The run is not closed by the player's disc
+            while (--k >= 0)
+                end = markFlip(ray[k], end);
+        }
+        for (int k = searchFlipCount; k < end; k++) {
+            int sq = searchFlips[k];
+            if (typeAt(sq) == BOMB) {
+                for (int neighbour : neighbours[sq]) {
+                    if (ownerIndex(neighbour) == 1 - me)
+                        end = markFlip(neighbour, end);
                 }
             }
         }
+        for (int k = searchFlipCount; k < end; k++) {
+            flipVisited[searchFlips[k] >>> 6] = 0;
+        }
+        return end;
     }
-/**
- * Handles the flipping of discs around a bomb disc. It checks all 8 directions from the bomb's position
- * and flips any opponent's discs adjacent to it. This function also recursively handles bombs
- * that may be present in adjacent positions.
- *
- * @param bomb The position of the bomb disc on the board.
- * @param setFlip A set to track the discs that need to be flipped.
- */
-
-    private void addFlipsForBomb(Position bomb, Set<Position> setFlip) {
-        Disc disc1 = gameBoard[bomb.row()][bomb.col()];
-        Stack<Position> bombs= new Stack<>();
-        if (disc1 instanceof BombDisc) {
-            Player player = getCurrentPlayer();
-            for (Position arrDirection : arrDirections) {
-                int xDirection = arrDirection.col();
-                int yDirection = arrDirection.row();
-                int x = bomb.row() + xDirection, y = bomb.col() + yDirection;
-                // Check bounds and if there's a disc to flip
-                if (x >= 0 && x < boardSize && y >= 0 && y < boardSize) {
-                    if (gameBoard[x][y] != null) {
-                        Disc disc = gameBoard[x][y];
-                        Position current = new Position(x, y);
-                        // Avoid duplicate positions in the flip list
-                        if (setFlip.contains(current)) {
-                            continue;
-                        }
-                        // Check if the disc is owned by the opponent and add it to flip list
-                        if ((!disc.getOwner().equals(player))&&!(disc instanceof UnflippableDisc)) {
-                                setFlip.add(current);
-                        }
-                        // If it's a bomb, recurse to check surrounding discs
-                        if (disc instanceof BombDisc&&setFlip.contains(current)) {
-                            addFlipsForBomb(new Position(x, y), setFlip);
-                        }
-                    }
-                }
-            }
+
+    // Push a square onto searchFlips unless it is unflippable or already collected; return the new top
+    private int markFlip(int square, int end) {
+        long bit = 1L << square;
+        if ((flipVisited[square >>> 6] & bit) == 0 && typeAt(square) != UNFLIPPABLE) {
+            flipVisited[square >>> 6] |= bit;
+            searchFlips[end++] = square;
         }
+        return end;
+    }
+
+    // Check if a square holds a disc
+    private boolean occupied(int square) {
+        int w = square >>> 6;
+        return ((discBits[0][w] | discBits[1][w]) & (1L << square)) != 0;
+    }
+
+    // Return the index of the owner of a square: 0 for player 1, 1 for player 2, -1 if it is empty
+    private int ownerIndex(int square) {
+        long bit = 1L << square;
+        if ((discBits[0][square >>> 6] & bit) != 0)
+            return 0;
+        if ((discBits[1][square >>> 6] & bit) != 0)
+            return 1;
+        return -1;
+    }
+
+    // Return the type code of the disc on a square (SIMPLE when empty)
+    private int typeAt(int square) {
+        long bit = 1L << square;
+        if ((bombBits[square >>> 6] & bit) != 0)
+            return BOMB;
+        if ((unflippableBits[square >>> 6] & bit) != 0)
+            return UNFLIPPABLE;
+        return SIMPLE;
+    }
+
+    // Put a disc of the given owner index and type on an empty square
+    private void put(int square, int owner, int discType) {
+        int w = square >>> 6;
+        long bit = 1L << square;
+        discBits[owner][w] |= bit;
+        if (discType == BOMB)
+            bombBits[w] |= bit;
+        else if (discType == UNFLIPPABLE)
+            unflippableBits[w] |= bit;
+    }
+
+    // Take the disc off a square
+    private void remove(int square) {
+        int w = square >>> 6;
+        long bit = ~(1L << square);
+        discBits[0][w] &= bit;
+        discBits[1][w] &= bit;
+        bombBits[w] &= bit;
+        unflippableBits[w] &= bit;
+    }
+
+    // Give the disc on a square to the player with the given index
+    private void setOwner(int square, int owner) {
+        int w = square >>> 6;
+        long bit = 1L << square;
+        discBits[owner][w] |= bit;
+        discBits[1 - owner][w] &= ~bit;
+    }
+
+    // Empty the whole board
+    private void clearBoard() {
+        for (int w = 0; w < words; w++) {
+            discBits[0][w] = 0;
+            discBits[1][w] = 0;
+            bombBits[w] = 0;
+            unflippableBits[w] = 0;
+        }
+    }
+
+    // Return the owner of the disc on an encoded square: 0 for none, 1 for player 1, 2 for player 2
+    @Override
+    public int getOwnerAt(int square) {
+        return ownerIndex(square) + 1;
+    }
+
+    // Return the type code of the disc on an encoded square (SIMPLE when empty)
+    @Override
+    public int getDiscTypeAt(int square) {
+        return typeAt(square);
     }
 
-    // Return the disc at a specific position on the board
+    // Count the discs of player 1 or player 2
+    @Override
+    public int countDiscs(boolean firstPlayer) {
+        long[] bits = discBits[firstPlayer ? 0 : 1];
+        int count = 0;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    // Set the logger that receives the game events
+    @Override
+    public void setLogger(GameLogger logger) {
+        this.logger = logger;
+    }
+
+    // Return the disc at a specific position on the board (a new Disc object each time, or null if empty)
     @Override
     public Disc getDiscAtPosition(Position position) {
-        return gameBoard[position.row()][position.col()];
+        int square = position.row() * boardSize + position.col();
+        int owner = ownerIndex(square);
+        if (owner < 0)
+            return null;
+        return SearchableLogic.createDisc(typeAt(square), owner == 0 ? player1 : player2);
     }
 
     // Return the size of the game board
@@ -209,42 +509,204 @@ public class GameLogic implements PlayableLogic {
     }
     /**
      * Finds and returns all valid moves for the current player.
-     * This function checks each position on the board to determine if placing a disc there would result
-     * in a valid move for the current player. A move is valid if it can capture at least one opponent's disc
-     * when placed at that position.
+     * This is a thin adapter over the cached valid moves for callers that need Position objects.
+     * The list is built once per ply and shared by later calls, so it cannot be modified.
      *
      * @return A list of valid positions where the current player can place a disc.
      */
     @Override
     public List<Position> ValidMoves() {
-        Player player = getCurrentPlayer();
-        List<Position> validMoves = new ArrayList<>();
-
-        // Check each board position for valid moves
-        for (int i = 0; i < boardSize; i++) {
-            for (int j = 0; j < boardSize; j++) {
-                if (gameBoard[i][j] == null) {
-                    if (possibleMove(i, j, player)) {
-                        validMoves.add(new Position(i, j));  // Add valid position
-                    }
-                }
+        long start = EngineMetrics.sample(++meteredCalls);
+        int p = turn ? 0 : 1;
+        updateValidMoves(p);
+        if (legalPositions[p] == null) {
+            List<Position> validMoves = new ArrayList<>(legalCount[p]);
+            for (int k = 0; k < legalCount[p]; k++) {
+                validMoves.add(Position.of(legalMoves[p][k] / boardSize, legalMoves[p][k] % boardSize));
             }
+            legalPositions[p] = Collections.unmodifiableList(validMoves);
+        }
+        EngineMetrics.VALID_MOVES.recordSince(start);
+        return legalPositions[p];
+    }
+
+    /**
+     * Writes the valid moves of the current player to the given array, in row-major order.
+     * A move is valid if it can capture at least one opponent's disc when placed at that position.
+     *
+     * @param moves The array to fill with encoded squares (row * boardSize + col).
+     * @return The number of valid moves written to the array.
+     */
+    @Override
+    public int validMoves(int[] moves) {
+        int p = turn ? 0 : 1;
+        updateValidMoves(p);
+        System.arraycopy(legalMoves[p], 0, moves, 0, legalCount[p]);
+        return legalCount[p];
+    }
+
+    /**
+     * Checks if the current player can place a disc on the given square.
+     *
+     * @param square The encoded square (row * boardSize + col).
+     * @return true if the square is a valid move for the current player.
+     */
+    private boolean isLegal(int square) {
+        int p = turn ? 0 : 1;
+        updateValidMoves(p);
+        return (legal[p][square >>> 6] & (1L << square)) != 0;
+    }
+
+    /**
+     * Brings the cached valid moves of a player up to date.
+     * Only the squares marked dirty since the last update are checked again; when nothing changed
+     * since the last call this returns at once, so repeated queries within one ply cost O(1).
+     * Each valid square must also be a frontier square, so the rest are rejected without a scan.
+     * The list of valid moves is read off the legality bitset one word (64 squares) at a time,
+     * so on large boards it costs little more than the number of valid moves.
+     *
+     * @param p The index of the player: 0 for player 1, 1 for player 2.
+     */
+    private void updateValidMoves(int p) {
+        if (cacheValid[p])
+            return;
+        for (int k = 0; k < dirtyCount[p]; k++) {
+            int square = dirtySquares[p][k];
+            long bit = 1L << square;
+            dirty[p][square >>> 6] &= ~bit;
+            if ((frontier[square >>> 6] & bit) != 0 && possibleMove(square, p))
+                legal[p][square >>> 6] |= bit;
+            else
+                legal[p][square >>> 6] &= ~bit;
+        }
+        dirtyCount[p] = 0;
+        int count = 0;
+        for (int w = 0; w < words; w++) {
+            for (long b = legal[p][w]; b != 0; b &= b - 1) {
+                legalMoves[p][count++] = (w << 6) + Long.numberOfTrailingZeros(b);
+            }
+        }
+        legalCount[p] = count;
+        legalPositions[p] = null;
+        cacheValid[p] = true;
+    }
+
+    /**
+     * Marks a square as possibly stale for both players.
+     *
+     * @param square The encoded square.
+     */
+    private void markDirty(int square) {
+        long bit = 1L << square;
+        for (int p = 0; p < 2; p++) {
+            if ((dirty[p][square >>> 6] & bit) == 0) {
+                dirty[p][square >>> 6] |= bit;
+                dirtySquares[p][dirtyCount[p]++] = square;
+            }
+            cacheValid[p] = false;
+        }
+    }
+
+    /**
+     * Marks the squares whose legality can change when the disc on a square changes.
+     * A square's legality depends only on the discs along its 8 rays up to the first empty square,
+     * so the affected squares are the square itself and, on each of its rays, the first empty square
+     * reached over a contiguous line of discs.
+     *
+     * @param square The encoded square that changed.
+     */
+    private void squareChanged(int square) {
+        markDirty(square);
+        int base = square * BoardGeometry.DIRECTIONS;
+        for (int d = 0; d < BoardGeometry.DIRECTIONS; d++) {
+            int[] ray = rays[base + d];
+            int k = 0;
+            while (k < ray.length && occupied(ray[k]))
+                k++;
+            if (k < ray.length)
+                markDirty(ray[k]);
         }
-        return validMoves;
     }
 
     /**
-     * Checks if a move at position (i, j) is possible for the current player.
-     * This function checks if placing a disc at the given position would result in a valid move by
-     * looking at all 8 possible directions (up, down, left, right, and diagonals).
+     * Updates the frontier and the dirty squares after a disc was put on an empty square.
      *
-     * @param i The row index of the position.
-     * @param j The column index of the position.
-     * @param player The current player who is making the move.
-     * @return true if the move at position (i, j) is valid for the current player, otherwise false.
-     */    private boolean possibleMove(int i, int j, Player player) {
-        for (int k = 0; k < 8; k++) {
-            if (isGoodDirection(new Position(i, j), arrDirections[k], player)) {
+     * @param square The encoded square of the new disc.
+     */
+    private void discPlaced(int square) {
+        setFrontier(square, false);
+        for (int neighbour : neighbours[square]) {
+            if (!occupied(neighbour))
+                setFrontier(neighbour, true);
+        }
+        squareChanged(square);
+    }
+
+    /**
+     * Updates the frontier and the dirty squares after the disc on a square was removed.
+     * The square and its empty neighbours stay in the frontier only if they still touch a disc.
+     *
+     * @param square The encoded square of the removed disc.
+     */
+    private void discRemoved(int square) {
+        setFrontier(square, touchesDisc(square));
+        for (int neighbour : neighbours[square]) {
+            if (!occupied(neighbour))
+                setFrontier(neighbour, touchesDisc(neighbour));
+        }
+        squareChanged(square);
+    }
+
+    // Add a square to the frontier or take it out
+    private void setFrontier(int square, boolean inFrontier) {
+        if (inFrontier)
+            frontier[square >>> 6] |= 1L << square;
+        else
+            frontier[square >>> 6] &= ~(1L << square);
+    }
+
+    // Check if any of the neighbours of a square holds a disc
+    private boolean touchesDisc(int square) {
+        for (int neighbour : neighbours[square]) {
+            if (occupied(neighbour))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Rebuilds the frontier from the whole board and marks all its squares dirty.
+     * Used when the board or the players are replaced at once.
+     */
+    private void invalidateAll() {
+        for (int p = 0; p < 2; p++) {
+            Arrays.fill(legal[p], 0);
+            Arrays.fill(dirty[p], 0);
+            dirtyCount[p] = 0;
+        }
+        for (int square = 0; square < boardSize * boardSize; square++) {
+            boolean inFrontier = !occupied(square) && touchesDisc(square);
+            setFrontier(square, inFrontier);
+            if (inFrontier)
+                markDirty(square);
+        }
+        cacheValid[0] = false;
+        cacheValid[1] = false;
+    }
+
+    /**
+     * Checks if a move on a square is possible for a player.
+     * This function checks if placing a disc on the square would result in a valid move by
+     * looking along its 8 rays (up, down, left, right, and diagonals).
+     *
+     * @param square The encoded square.
+     * @param me The index of the player who is making the move (0 for player 1, 1 for player 2).
+     * @return true if the move on the square is valid for the player, otherwise false.
+     */
+    private boolean possibleMove(int square, int me) {
+        int base = square * BoardGeometry.DIRECTIONS;
+        for (int d = 0; d < BoardGeometry.DIRECTIONS; d++) {
+            if (isGoodDirection(rays[base + d], me)) {
                 return true;  // If any direction is valid, return true
             }
         }
@@ -252,32 +714,26 @@ public class GameLogic implements PlayableLogic {
     }
 
     /**
-     * Checks if a direction from a given position is a valid move for the player.
-     * This function examines a specific direction from the given position to determine if placing a disc there
+     * Checks if a direction from a square is a valid move for the player.
+     * This function examines one ray of the square to determine if placing a disc there
      * would result in flipping at least one opponent's disc. The direction is valid if the path contains
      * one or more opponent's discs followed by one of the player's own discs.
      *
-     * @param position The starting position on the board from where the direction is being checked.
-     * @param direction The direction in which to check for valid moves (specified by a Position object representing a direction).
-     * @param player The current player who is trying to make the move.
+     * @param ray The squares along the direction, from the square's neighbour to the edge of the board.
+     * @param me The index of the player who is trying to make the move.
      * @return true if the direction contains a valid sequence of opponent's discs followed by the player's disc, otherwise false.
      */
-    private boolean isGoodDirection(Position position, Position direction, Player player) {
+    private boolean isGoodDirection(int[] ray, int me) {
         boolean wasOtherPlayer = false;
-        int xDirection = direction.col();
-        int yDirection = direction.row();
-
-        for (int x = position.row() + xDirection, y = position.col() + yDirection;
-             x >= 0 && x < boardSize && y >= 0 && y < boardSize;
-             x += xDirection, y += yDirection) {
-            Disc disc = gameBoard[x][y];
+        for (int square : ray) {
+            int owner = ownerIndex(square);
 
-            if (disc == null) {
+            if (owner < 0) {
                 return false;  // Hit an empty space, invalid direction
-            } else if (disc.getOwner().equals(player)) {
+            } else if (owner == me) {
                 return wasOtherPlayer;  // Found a player's disc, if there was an opponent's disc before, return true
             } else {
-                if (!(disc instanceof UnflippableDisc)) {
+                if (typeAt(square) != UNFLIPPABLE) {
                     wasOtherPlayer = true;  // Found an opponent's disc
                 }
             }
@@ -291,6 +747,7 @@ public class GameLogic implements PlayableLogic {
      *
      * @return The player whose turn it is (either player1 or player2).
      */
+    @Override
     public Player getCurrentPlayer() {
         return turn ? player1 : player2;
     }
@@ -303,9 +760,16 @@ public class GameLogic implements PlayableLogic {
      * @return The number of discs that would be flipped if the current player places a disc at the given position.
      */
     public int countFlips(Position a) {
-        HashSet<Position> flips= new HashSet<>();
-        flipsForLocation(a,flips);
-        return flips.size();
+        long start = EngineMetrics.sample(++meteredCalls);
+        int flips = countFlips(a.row() * boardSize + a.col());
+        EngineMetrics.COUNT_FLIPS.recordSince(start);
+        return flips;
+    }
+
+    // Count the flips for an encoded square (row * boardSize + col)
+    @Override
+    public int countFlips(int square) {
+        return collectFlips(square, turn ? 0 : 1) - searchFlipCount;
     }
 
     // Return the first player
@@ -325,6 +789,7 @@ public class GameLogic implements PlayableLogic {
     public void setPlayers(Player player1, Player player2) {
         this.player1 = player1;
         this.player2 = player2;
+        invalidateAll();
     }
 
     // Check if it's the first player's turn
@@ -336,7 +801,9 @@ public class GameLogic implements PlayableLogic {
     // Check if the game has finished (no valid moves left)
     @Override
     public boolean isGameFinished() {
-        if (ValidMoves().isEmpty()) {
+        int p = turn ? 0 : 1;
+        updateValidMoves(p);
+        if (legalCount[p] == 0) {
             int winner = getWinner();
             if (winner == 1)
                 player1.addWin();  // Player 1 wins
@@ -349,30 +816,17 @@ public class GameLogic implements PlayableLogic {
 
     // Determine the winner based on the number of discs each player has
     private int getWinner() {
-        int count1 = 0;
-        int count2 = 0;
-
         // Count the discs owned by each player
-        for (int i = 0; i < boardSize; i++) {
-            for (int j = 0; j < boardSize; j++) {
-                Disc disc = gameBoard[i][j];
-                if (disc != null) {
-                    if (disc.getOwner().equals(player1)) {
-                        count1++;
-                    } else if (disc.getOwner().equals(player2)) {
-                        count2++;
-                    }
-                }
-            }
-        }
+        int count1 = countDiscs(true);
+        int count2 = countDiscs(false);
 
         // Return the winner (1 or 2), or 0 for a tie
         if (count1 > count2) {
-            System.out.println("Player 1 wins with " + count1 + " discs! Player 2 had " + count2 + " discs.");
+            logger.gameWon(1, count1, count2);
             return 1;
         }
         else if (count2 > count1) {
-            System.out.println("Player 2 wins with " + count2 + " discs! Player 1 had " + count1 + " discs.");
+            logger.gameWon(2, count1, count2);
             return 2;
         }
         return 0;
@@ -381,21 +835,22 @@ public class GameLogic implements PlayableLogic {
     // Reset the game board to its initial state
     @Override
     public void reset() {
-        for (int i = 0; i < boardSize; i++) {
-            for (int j = 0; j < boardSize; j++) {
-                gameBoard[i][j] = null;
-            }
-        }
+        clearBoard();
         // Place the initial discs in the center
-        gameBoard[3][3] = new SimpleDisc(player1);
-        gameBoard[3][4] = new SimpleDisc(player2);
-        gameBoard[4][3] = new SimpleDisc(player2);
-        gameBoard[4][4] = new SimpleDisc(player1);
+        int low = boardSize / 2 - 1, high = boardSize / 2;
+        put(low * boardSize + low, 0, SIMPLE);
+        put(low * boardSize + high, 1, SIMPLE);
+        put(high * boardSize + low, 1, SIMPLE);
+        put(high * boardSize + high, 0, SIMPLE);
         turn = true;  // Player 1 starts
         player1.reset_bombs_and_unflippedable();
         player2.reset_bombs_and_unflippedable();
         onlyHumen=player1.isHuman()&&player2.isHuman();
         historyMoves.clear();
+        searchDepth = 0;
+        searchFlipCount = 0;
+        invalidateAll();
+        hash = zobrist.hash(this);
     }
 
     /**
@@ -408,12 +863,19 @@ public class GameLogic implements PlayableLogic {
      */
     @Override
     public void undoLastMove() {
+        long start = EngineMetrics.sample(++meteredCalls);
+        undo();
+        EngineMetrics.UNDO_LAST_MOVE.recordSince(start);
+    }
+
+    // Undo the last move for undoLastMove, logging it
+    private void undo() {
         if (!onlyHumen) return;  // Only allow undo in human-player mode
-        System.out.println("Undoing last move:");
+        logger.undoStarted();
 
         // Check if there is a previous move to undo
         if (historyMoves.empty()) {
-            System.out.println("\tNo previous move available to undo.");
+            logger.undoUnavailable();
             return;
         }
 
@@ -427,22 +889,25 @@ public class GameLogic implements PlayableLogic {
         else if (disc instanceof UnflippableDisc) player.increase_unflippedable();
 
         Position position = lastMove.position();
-        System.out.println("\tUndo: removing " + disc.getType() + " from " + position.toString());
+        logger.undoRemoved(SearchableLogic.typeOf(disc), position.row(), position.col());
 
         // Remove the disc from the board
-        gameBoard[lastMove.position().row()][lastMove.position().col()] = null;
+        remove(position.row() * boardSize + position.col());
+        discRemoved(position.row() * boardSize + position.col());
 
         // Flip back the discs that were flipped during the move
         Stack<Position> historyFlips = lastMove.getFlips();
         while (!historyFlips.isEmpty()) {
             Position p = historyFlips.pop();
-            gameBoard[p.row()][p.col()].setOwner(getCurrentPlayer());
-            System.out.println("\tUndo: flipping back " + gameBoard[p.row()][p.col()].getType() + " in " + p);
+            int square = p.row() * boardSize + p.col();
+            setOwner(square, turn ? 0 : 1);
+            squareChanged(square);
+            logger.undoFlipped(typeAt(square), p.row(), p.col());
         }
 
         // Switch the player's turn
         turn = !turn;
-        System.out.println();
+        hash = zobrist.hash(this);
+        logger.undoFinished();
     }
 }
-
@@ -0,0 +1,112 @@
+import java.util.Arrays;
+
+/**
+ * A finished game kept compactly: the players, the seed it was played with, the final disc counts and
+ * its moves as encoded moves (square << 2 | disc type, see SearchableLogic.encodeMove), without the flips,
+ * which replay recomputes. GameRecordWriter stores it in one byte per move on boards up to 8x8
+ * (64 squares and 3 disc types fit in 8 bits), and in two bytes per move on larger boards.
+ *
+ * A game has no passes (it ends when the player to move has no valid move), so the moves alternate
+ * between the players, player 1 first.
+ */
+public final class GameRecord {
+
+    private final int boardSize;
+    private final String firstPlayer;
+    private final String secondPlayer;
+    private final long seed;
+    private final int firstDiscs;
+    private final int secondDiscs;
+    private final int[] moves;
+
+    /**
+     * Constructs a record.
+     *
+     * @param boardSize The size of the board.
+     * @param firstPlayer The name of player 1, for example its AI type (at most 255 bytes in UTF-8).
+     * @param secondPlayer The name of player 2.
+     * @param seed The seed the game was played with, or any number identifying the game.
+     * @param firstDiscs The number of player 1's discs at the end.
+     * @param secondDiscs The number of player 2's discs at the end.
+     * @param moves The encoded moves; the first moveCount entries are copied.
+     * @param moveCount The number of moves.
+     */
+    public GameRecord(int boardSize, String firstPlayer, String secondPlayer, long seed,
+                      int firstDiscs, int secondDiscs, int[] moves, int moveCount) {
+        this.boardSize = boardSize;
+        this.firstPlayer = firstPlayer;
+        this.secondPlayer = secondPlayer;
+        this.seed = seed;
+        this.firstDiscs = firstDiscs;
+        this.secondDiscs = secondDiscs;
+        this.moves = Arrays.copyOf(moves, moveCount);
+    }
+
+    /**
+     * Returns the number of bytes a move takes in a record file.
+     *
+     * @param boardSize The size of the board.
+     * @return 1 for boards up to 8x8, 2 for larger boards.
+     */
+    public static int bytesPerMove(int boardSize) {
+        return boardSize <= 8 ? 1 : 2;
+    }
+
+    /**
+     * Plays the moves again on a new engine (a BitboardGameLogic for 8x8, a GameLogic otherwise),
+     * which logs nothing and has stand-in players.
+     *
+     * @return The engine at the end of the recorded game.
+     * @throws IllegalStateException If a recorded move is not valid.
+     */
+    public SearchableLogic replay() {
+        SearchableLogic logic = boardSize == 8 ? new BitboardGameLogic() : new GameLogic(boardSize);
+        logic.setLogger(NoOpGameLogger.INSTANCE);
+        logic.setPlayers(new HumanPlayer(true), new HumanPlayer(false));
+        logic.reset();
+        int played = logic.playMoves(moves, moves.length, null);
+        if (played < moves.length)
+            throw new IllegalStateException("Recorded move " + played + " is not valid: " + moves[played]);
+        return logic;
+    }
+
+    // Return the size of the board
+    public int getBoardSize() {
+        return boardSize;
+    }
+
+    // Return the name of player 1
+    public String getFirstPlayer() {
+        return firstPlayer;
+    }
+
+    // Return the name of player 2
+    public String getSecondPlayer() {
+        return secondPlayer;
+    }
+
+    // Return the seed the game was played with
+    public long getSeed() {
+        return seed;
+    }
+
+    // Return the number of discs player 1 or player 2 has at the end
+    public int getDiscs(boolean firstPlayer) {
+        return firstPlayer ? firstDiscs : secondDiscs;
+    }
+
+    // Return the winner: 1 for player 1, 2 for player 2, 0 for a draw
+    public int getWinner() {
+        return firstDiscs > secondDiscs ? 1 : secondDiscs > firstDiscs ? 2 : 0;
+    }
+
+    // Return the number of moves
+    public int getMoveCount() {
+        return moves.length;
+    }
+
+    // Return the encoded move with the given number, counting from 0
+    public int getMove(int index) {
+        return moves[index];
+    }
+}
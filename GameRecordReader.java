@@ -0,0 +1,106 @@
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Reads the GameRecords of a file written by GameRecordWriter (see there for the layout), one at a time
+ * through a large buffer, so a file of any number of games is replayed with only one game on the heap.
+ *
+ * Usage: java GameRecordReader games.bin
+ * replays every game of the file and prints the number of games and how they ended.
+ */
+public class GameRecordReader implements Closeable {
+
+    private final DataInputStream in;
+    // A buffer for the moves of one game, grown when needed
+    private int[] moves = new int[64];
+
+    /**
+     * Opens a record file and checks its header.
+     *
+     * @param file The file to read.
+     * @throws IOException If the file cannot be read or is not a record file.
+     */
+    public GameRecordReader(Path file) throws IOException {
+        in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), GameRecordWriter.BUFFER_BYTES));
+        try {
+            if (in.readInt() != GameRecordWriter.MAGIC || in.readInt() != GameRecordWriter.VERSION)
+                throw new IOException(file + " is not a game record file of version " + GameRecordWriter.VERSION);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the next game.
+     *
+     * @return The game, or null at the end of the file.
+     * @throws IOException If the file cannot be read or ends in the middle of a game.
+     */
+    public GameRecord read() throws IOException {
+        int boardSize = in.read();
+        if (boardSize < 0)
+            return null;
+        try {
+            long seed = in.readLong();
+            int firstDiscs = in.readUnsignedShort();
+            int secondDiscs = in.readUnsignedShort();
+            String firstPlayer = readName();
+            String secondPlayer = readName();
+            int moveCount = in.readUnsignedShort();
+            if (moves.length < moveCount)
+                moves = new int[moveCount];
+            boolean wide = GameRecord.bytesPerMove(boardSize) == 2;
+            for (int k = 0; k < moveCount; k++) {
+                moves[k] = wide ? in.readUnsignedShort() : in.readUnsignedByte();
+            }
+            return new GameRecord(boardSize, firstPlayer, secondPlayer, seed, firstDiscs, secondDiscs, moves, moveCount);
+        } catch (EOFException e) {
+            throw new IOException("Game record file ends in the middle of a game", e);
+        }
+    }
+
+    // Read a player name: a length byte and that many bytes of UTF-8
+    private String readName() throws IOException {
+        byte[] bytes = new byte[in.readUnsignedByte()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Replays every game of a record file and prints a summary; see the class comment.
+     *
+     * @param args The command-line arguments: the file.
+     * @throws IOException If the file cannot be read.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1)
+            throw new IllegalArgumentException("Usage: java GameRecordReader games.bin");
+        long games = 0, moves = 0;
+        long[] results = new long[3];
+        long start = System.nanoTime();
+        try (GameRecordReader reader = new GameRecordReader(Path.of(args[0]))) {
+            for (GameRecord record = reader.read(); record != null; record = reader.read()) {
+                SearchableLogic end = record.replay();
+                if (end.countDiscs(true) != record.getDiscs(true) || end.countDiscs(false) != record.getDiscs(false))
+                    throw new IllegalStateException("Game " + games + " does not end with its recorded disc counts");
+                games++;
+                moves += record.getMoveCount();
+                results[record.getWinner()]++;
+            }
+        }
+        System.out.printf("%d games, %d moves replayed in %.2f s: %d won by player 1, %d by player 2, %d drawn%n",
+                games, moves, (System.nanoTime() - start) / 1e9, results[1], results[2], results[0]);
+    }
+}
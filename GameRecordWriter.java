@@ -0,0 +1,99 @@
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes GameRecords to a file, one after the other, through a large buffer, so games are streamed to
+ * disk as they finish and never collected on the heap. Read the file back with GameRecordReader.
+ *
+ * File layout (big-endian): a header of MAGIC and VERSION (2 ints), then the records. Each record is:
+ * - the board size (1 byte) and the seed (long);
+ * - the final disc counts of player 1 and player 2 (2 unsigned shorts);
+ * - the names of player 1 and player 2, each as a length (1 byte) and that many bytes of UTF-8;
+ * - the number of moves (unsigned short) and the moves, each the encoded move (square << 2 | disc type)
+ *   in GameRecord.bytesPerMove bytes: 1 byte on boards up to 8x8, 2 on larger boards.
+ * A game of 60 moves on the 8x8 board with short player names takes about 90 bytes.
+ *
+ * A writer is not thread-safe; games played in parallel are written by the thread that collects them.
+ */
+public class GameRecordWriter implements Closeable {
+
+    static final int MAGIC = 0x52564752;  // "RVGR"
+    static final int VERSION = 1;
+    static final int BUFFER_BYTES = 1 << 16;
+
+    private final DataOutputStream out;
+    private long gamesWritten;
+
+    /**
+     * Creates (or replaces) a record file and writes its header.
+     *
+     * @param file The file to write.
+     * @throws IOException If the file cannot be written.
+     */
+    public GameRecordWriter(Path file) throws IOException {
+        out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), BUFFER_BYTES));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+    }
+
+    /**
+     * Appends a game to the file.
+     *
+     * @param record The game.
+     * @throws IOException If the file cannot be written.
+     * @throws IllegalArgumentException If a player name is longer than 255 bytes in UTF-8.
+     */
+    public void write(GameRecord record) throws IOException {
+        byte[] first = name(record.getFirstPlayer());
+        byte[] second = name(record.getSecondPlayer());
+        out.writeByte(record.getBoardSize());
+        out.writeLong(record.getSeed());
+        out.writeShort(record.getDiscs(true));
+        out.writeShort(record.getDiscs(false));
+        out.writeByte(first.length);
+        out.write(first);
+        out.writeByte(second.length);
+        out.write(second);
+        out.writeShort(record.getMoveCount());
+        boolean wide = GameRecord.bytesPerMove(record.getBoardSize()) == 2;
+        for (int k = 0; k < record.getMoveCount(); k++) {
+            if (wide)
+                out.writeShort(record.getMove(k));
+            else
+                out.writeByte(record.getMove(k));
+        }
+        gamesWritten++;
+    }
+
+    // Return the UTF-8 bytes of a player name, which must fit its 1-byte length
+    private static byte[] name(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 255)
+            throw new IllegalArgumentException("Player name longer than 255 bytes: " + name);
+        return bytes;
+    }
+
+    // Return the number of games written so far
+    public long getGamesWritten() {
+        return gamesWritten;
+    }
+
+    /**
+     * Writes the buffered games to the file.
+     *
+     * @throws IOException If the file cannot be written.
+     */
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
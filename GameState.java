@@ -0,0 +1,296 @@
+import java.util.Arrays;
+
+/**
+ * An immutable snapshot of a game: the board with the disc types, the side to move and the special discs
+ * both players have left. A GameState never changes once made, so it can be handed to AIs running on
+ * other threads while the game goes on, without any locking; apply returns a new state instead of
+ * changing this one.
+ *
+ * The board is kept as bitsets over the encoded squares (row * boardSize + col, bit square % 64 of word
+ * square / 64), like in GameLogic, so an engine produces a snapshot with a copy of a few small arrays
+ * (see SearchableLogic.snapshot), and a snapshot loads back into an engine just as cheaply.
+ */
+public final class GameState {
+
+    private final int boardSize;
+    // The discs of player 1 and player 2, and the squares holding a bomb / an unflippable disc
+    private final long[] player1Discs;
+    private final long[] player2Discs;
+    private final long[] bombs;
+    private final long[] unflippables;
+    private final boolean firstPlayerTurn;
+    // Special discs left: bombs and unflippable discs of player 1, then of player 2
+    private final int bombs1;
+    private final int unflippables1;
+    private final int bombs2;
+    private final int unflippables2;
+
+    /**
+     * Constructs a state from its bitsets. The arrays are kept, not copied, so the caller must hand over
+     * arrays that nothing else will change.
+     *
+     * @param boardSize The size of the board.
+     * @param player1Discs The squares of player 1's discs.
+     * @param player2Discs The squares of player 2's discs.
+     * @param bombs The squares holding a bomb.
+     * @param unflippables The squares holding an unflippable disc.
+     * @param firstPlayerTurn true if player 1 is to move.
+     * @param inventory The special discs left: bombs and unflippable discs of player 1, then of player 2.
+     */
+    GameState(int boardSize, long[] player1Discs, long[] player2Discs, long[] bombs, long[] unflippables,
+              boolean firstPlayerTurn, int... inventory) {
+        this.boardSize = boardSize;
+        this.player1Discs = player1Discs;
+        this.player2Discs = player2Discs;
+        this.bombs = bombs;
+        this.unflippables = unflippables;
+        this.firstPlayerTurn = firstPlayerTurn;
+        this.bombs1 = inventory[0];
+        this.unflippables1 = inventory[1];
+        this.bombs2 = inventory[2];
+        this.unflippables2 = inventory[3];
+    }
+
+    /**
+     * Takes a snapshot of any engine through its square-by-square queries. Engines implement
+     * SearchableLogic.snapshot with this, or with a direct copy of their own bitsets.
+     *
+     * @param logic The engine; its players must be set.
+     * @return The state of the engine.
+     */
+    static GameState of(SearchableLogic logic) {
+        int n = logic.getBoardSize();
+        int words = (n * n + 63) >>> 6;
+        long[][] discs = {new long[words], new long[words]};
+        long[] bombs = new long[words];
+        long[] unflippables = new long[words];
+        for (int square = 0; square < n * n; square++) {
+            int owner = logic.getOwnerAt(square);
+            if (owner == 0)
+                continue;
+            discs[owner - 1][square >>> 6] |= 1L << square;
+            int type = logic.getDiscTypeAt(square);
+            if (type == SearchableLogic.BOMB)
+                bombs[square >>> 6] |= 1L << square;
+            else if (type == SearchableLogic.UNFLIPPABLE)
+                unflippables[square >>> 6] |= 1L << square;
+        }
+        Player first = logic.getFirstPlayer(), second = logic.getSecondPlayer();
+        return new GameState(n, discs[0], discs[1], bombs, unflippables, logic.isFirstPlayerTurn(),
+                first.getNumber_of_bombs(), first.getNumber_of_unflippedable(),
+                second.getNumber_of_bombs(), second.getNumber_of_unflippedable());
+    }
+
+    /**
+     * Creates a new engine in this state, for an AI to search on without touching the live game.
+     * 8x8 states get a BitboardGameLogic, other sizes a GameLogic. The engine has its own stand-in
+     * players holding this state's special discs, and logs nothing.
+     *
+     * @return The engine.
+     */
+    public SearchableLogic newEngine() {
+        SearchableLogic logic = boardSize == 8 ? new BitboardGameLogic() : new GameLogic(boardSize);
+        logic.setLogger(NoOpGameLogger.INSTANCE);
+        logic.setPlayers(new HumanPlayer(true), new HumanPlayer(false));
+        logic.loadState(this);
+        return logic;
+    }
+
+    /**
+     * Returns the state after the player to move plays a move. This state is left as it is.
+     *
+     * @param move The encoded move (see SearchableLogic.encodeMove).
+     * @return The new state, with the other player to move.
+     * @throws IllegalArgumentException If the move is not valid in this state, or the player has no
+     *                                  special disc of that type left.
+     */
+    public GameState apply(int move) {
+        int square = SearchableLogic.moveSquare(move);
+        int discType = SearchableLogic.moveType(move);
+        int me = firstPlayerTurn ? 0 : 1;
+        int[] inventory = {bombs1, unflippables1, bombs2, unflippables2};
+        if (discType == SearchableLogic.BOMB && inventory[2 * me]-- == 0
+                || discType == SearchableLogic.UNFLIPPABLE && inventory[2 * me + 1]-- == 0)
+            throw new IllegalArgumentException("No special disc of type " + discType + " left for move " + square);
+        long[] flips = flips(square);
+        if (flips == null)
+            throw new IllegalArgumentException("Not a valid move: " + square);
+
+        long[][] discs = {player1Discs.clone(), player2Discs.clone()};
+        long[] newBombs = bombs.clone();
+        long[] newUnflippables = unflippables.clone();
+        for (int w = 0; w < flips.length; w++) {
+            discs[me][w] |= flips[w];
+            discs[1 - me][w] &= ~flips[w];
+        }
+        discs[me][square >>> 6] |= 1L << square;
+        if (discType == SearchableLogic.BOMB)
+            newBombs[square >>> 6] |= 1L << square;
+        else if (discType == SearchableLogic.UNFLIPPABLE)
+            newUnflippables[square >>> 6] |= 1L << square;
+        return new GameState(boardSize, discs[0], discs[1], newBombs, newUnflippables, !firstPlayerTurn, inventory);
+    }
+
+    /**
+     * Returns the state after the player to move plays a move given as a Move (for example one made by an AI).
+     *
+     * @param move The move; only its position and the type of its disc are used.
+     * @return The new state, with the other player to move.
+     * @throws IllegalArgumentException If the move is not valid in this state.
+     */
+    public GameState apply(Move move) {
+        Position position = move.position();
+        return apply(SearchableLogic.encodeMove(position.row() * boardSize + position.col(),
+                SearchableLogic.typeOf(move.disc())));
+    }
+
+    /**
+     * Checks if the player to move can place a disc on a square (whatever its type).
+     *
+     * @param square The encoded square.
+     * @return true if the square is empty and a disc there flips at least one disc.
+     */
+    public boolean isValidMove(int square) {
+        return flips(square) != null;
+    }
+
+    /**
+     * Writes the valid moves of the player to move to the given array, in row-major order.
+     *
+     * @param moves The array to fill with encoded squares; it needs boardSize * boardSize entries.
+     * @return The number of valid moves written.
+     */
+    public int validMoves(int[] moves) {
+        int count = 0;
+        for (int square = 0; square < boardSize * boardSize; square++) {
+            if (isValidMove(square))
+                moves[count++] = square;
+        }
+        return count;
+    }
+
+    /**
+     * Computes the squares that a disc of the player to move on a square flips, like GameLogic:
+     * the flippable discs of every run of opponent's discs closed by one of the player's discs,
+     * then, through a worklist, the opponent's flippable discs next to every bomb flipped.
+     *
+     * @param square The encoded square.
+     * @return The flipped squares as a bitset, or null if the square is taken or nothing would flip.
+     */
+    private long[] flips(int square) {
+        long[] own = firstPlayerTurn ? player1Discs : player2Discs;
+        long[] opponent = firstPlayerTurn ? player2Discs : player1Discs;
+        if (test(own, square) || test(opponent, square))
+            return null;
+        BoardGeometry geometry = BoardGeometry.forBoardSize(boardSize);
+        int[][] rays = geometry.rays();
+        long[] flips = new long[own.length];
+        int[] worklist = new int[boardSize * boardSize];
+        int end = 0;
+        for (int d = 0; d < BoardGeometry.DIRECTIONS; d++) {
+            int[] ray = rays[square * BoardGeometry.DIRECTIONS + d];
+            int k = 0;
+            while (k < ray.length && test(opponent, ray[k]))
+                k++;
+            if (k == ray.length || !test(own, ray[k]))
+                continue;  // The run is not closed by the player's disc
+            while (--k >= 0) {
+                if (!test(unflippables, ray[k]) && !test(flips, ray[k])) {
+                    flips[ray[k] >>> 6] |= 1L << ray[k];
+                    worklist[end++] = ray[k];
+                }
+            }
+        }
+        for (int k = 0; k < end; k++) {
+            if (!test(bombs, worklist[k]))
+                continue;
+            for (int neighbour : geometry.neighbours()[worklist[k]]) {
+                if (test(opponent, neighbour) && !test(unflippables, neighbour) && !test(flips, neighbour)) {
+                    flips[neighbour >>> 6] |= 1L << neighbour;
+                    worklist[end++] = neighbour;
+                }
+            }
+        }
+        return end == 0 ? null : flips;
+    }
+
+    // Check if a square is in a bitset
+    private static boolean test(long[] bits, int square) {
+        return (bits[square >>> 6] & (1L << square)) != 0;
+    }
+
+    // Return the size of the board
+    public int getBoardSize() {
+        return boardSize;
+    }
+
+    // Return the owner of the disc on an encoded square: 0 for none, 1 for player 1, 2 for player 2
+    public int getOwnerAt(int square) {
+        return test(player1Discs, square) ? 1 : test(player2Discs, square) ? 2 : 0;
+    }
+
+    // Return the type code of the disc on an encoded square (SIMPLE when empty)
+    public int getDiscTypeAt(int square) {
+        return test(bombs, square) ? SearchableLogic.BOMB
+                : test(unflippables, square) ? SearchableLogic.UNFLIPPABLE : SearchableLogic.SIMPLE;
+    }
+
+    // Check if it's the first player's turn
+    public boolean isFirstPlayerTurn() {
+        return firstPlayerTurn;
+    }
+
+    // Return the number of bombs player 1 or player 2 has left
+    public int getBombs(boolean firstPlayer) {
+        return firstPlayer ? bombs1 : bombs2;
+    }
+
+    // Return the number of unflippable discs player 1 or player 2 has left
+    public int getUnflippables(boolean firstPlayer) {
+        return firstPlayer ? unflippables1 : unflippables2;
+    }
+
+    // Count the discs of player 1 or player 2
+    public int countDiscs(boolean firstPlayer) {
+        int count = 0;
+        for (long word : firstPlayer ? player1Discs : player2Discs) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Copies one of the bitsets of the board into an array of the same length, for engines loading the state.
+     *
+     * @param which 0 for player 1's discs, 1 for player 2's, 2 for the bombs, 3 for the unflippable discs.
+     * @param target The array to copy into.
+     */
+    void copyBits(int which, long[] target) {
+        long[] source = which == 0 ? player1Discs : which == 1 ? player2Discs : which == 2 ? bombs : unflippables;
+        System.arraycopy(source, 0, target, 0, source.length);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other)
+            return true;
+        if (!(other instanceof GameState))
+            return false;
+        GameState state = (GameState) other;
+        return boardSize == state.boardSize && firstPlayerTurn == state.firstPlayerTurn
+                && bombs1 == state.bombs1 && unflippables1 == state.unflippables1
+                && bombs2 == state.bombs2 && unflippables2 == state.unflippables2
+                && Arrays.equals(player1Discs, state.player1Discs) && Arrays.equals(player2Discs, state.player2Discs)
+                && Arrays.equals(bombs, state.bombs) && Arrays.equals(unflippables, state.unflippables);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Arrays.hashCode(player1Discs);
+        result = 31 * result + Arrays.hashCode(player2Discs);
+        result = 31 * result + Arrays.hashCode(bombs);
+        result = 31 * result + Arrays.hashCode(unflippables);
+        result = 31 * result + (firstPlayerTurn ? 1 : 0);
+        return 31 * result + ((bombs1 * 16 + unflippables1) * 16 + bombs2) * 16 + unflippables2;
+    }
+}
@@ -0,0 +1,179 @@
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of call times that any number of threads record into without locks.
+ * Every call is counted, but only the timed ones (a sample, see EngineMetrics.sample) go into the
+ * buckets, so the mean and the percentiles are those of the sample.
+ *
+ * A time in nanoseconds falls into one of BUCKETS buckets: every power of two is split into
+ * SUB_BUCKETS equal parts, so a bucket is at most a quarter wider than its lower bound, whatever the
+ * scale. Every bucket is a LongAdder, which spreads concurrent increments over several cells instead
+ * of making the threads fight over one counter; the sum and the maximum are kept the same way.
+ * Recording is a few adds and never allocates; reading adds up the buckets, so the figures of a
+ * histogram that is still being recorded into are only approximately consistent with each other.
+ */
+public final class LatencyHistogram implements LatencyHistogramMBean {
+
+    // Buckets per power of two, as a number of bits
+    private static final int SUB_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    // Enough buckets for any positive long
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+    private final String name;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Constructs an empty histogram.
+     *
+     * @param name The name of the measured operation.
+     */
+    public LatencyHistogram(String name) {
+        this.name = name;
+        for (int b = 0; b < BUCKETS; b++) {
+            buckets[b] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records one timed call.
+     *
+     * @param nanos The time the call took, in nanoseconds; negative times count as 0.
+     */
+    public void record(long nanos) {
+        calls.increment();
+        addTime(nanos);
+    }
+
+    /**
+     * Records a call that started at the value EngineMetrics.start() or EngineMetrics.sample() returned,
+     * if metrics are on. A call that was not timed is only counted.
+     *
+     * @param startNanos The System.nanoTime() value at the start of the call, or EngineMetrics.NOT_TIMED.
+     */
+    public void recordSince(long startNanos) {
+        if (!EngineMetrics.ENABLED)
+            return;
+        calls.increment();
+        if (startNanos != EngineMetrics.NOT_TIMED)
+            addTime(System.nanoTime() - startNanos);
+    }
+
+    // Add the time of a call to the buckets, the sum and the maximum
+    private void addTime(long nanos) {
+        nanos = Math.max(0, nanos);
+        buckets[bucket(nanos)].increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    // Return the bucket of a time: the exact value below SUB_BUCKETS, or else its highest SUB_BITS + 1 bits
+    private static int bucket(long nanos) {
+        if (nanos < SUB_BUCKETS)
+            return (int) nanos;
+        int highest = 63 - Long.numberOfLeadingZeros(nanos);
+        return (highest - SUB_BITS + 1) * SUB_BUCKETS + (int) ((nanos >>> (highest - SUB_BITS)) & (SUB_BUCKETS - 1));
+    }
+
+    // Return the largest time that falls into a bucket
+    private static long upperBound(int bucket) {
+        if (bucket + 1 < SUB_BUCKETS)
+            return bucket;
+        int next = bucket + 1;
+        int highest = next / SUB_BUCKETS + SUB_BITS - 1;
+        long lower = (long) (SUB_BUCKETS + next % SUB_BUCKETS) << (highest - SUB_BITS);
+        return lower <= 0 ? Long.MAX_VALUE : lower - 1;
+    }
+
+    /**
+     * Returns a percentile of the recorded times.
+     *
+     * @param fraction The percentile as a fraction, between 0 and 1 (0.99 for the 99th percentile).
+     * @return The upper bound of the bucket the percentile falls in, in nanoseconds; 0 if nothing was recorded.
+     */
+    public long percentileNanos(double fraction) {
+        long[] counts = new long[BUCKETS];
+        long count = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            counts[b] = buckets[b].sum();
+            count += counts[b];
+        }
+        if (count == 0)
+            return 0;
+        long rank = Math.max(1, (long) Math.ceil(fraction * count));
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += counts[b];
+            if (seen >= rank)
+                return Math.min(upperBound(b), maxNanos.get());
+        }
+        return maxNanos.get();
+    }
+
+    /**
+     * Formats the histogram as one line of the metrics report.
+     *
+     * @return The name, the number of calls and of timed calls, and the mean, p50, p90, p99 and maximum in microseconds.
+     */
+    public String summary() {
+        return String.format("%-24s %12d calls %10d timed  mean %10.2f  p50 %10.2f  p90 %10.2f  p99 %10.2f  max %10.2f us",
+                name, getCount(), getTimedCount(), getMeanMicros(), getP50Micros(), getP90Micros(), getP99Micros(), getMaxMicros());
+    }
+
+    // Return the name of the measured operation
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    // Return the number of recorded calls
+    @Override
+    public long getCount() {
+        return calls.sum();
+    }
+
+    // Return the number of recorded calls that were timed
+    @Override
+    public long getTimedCount() {
+        long count = 0;
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    // Return the mean time of a call, in microseconds
+    @Override
+    public double getMeanMicros() {
+        long count = getTimedCount();
+        return count == 0 ? 0 : totalNanos.sum() / 1e3 / count;
+    }
+
+    // Return the median time of a call, in microseconds
+    @Override
+    public double getP50Micros() {
+        return percentileNanos(0.5) / 1e3;
+    }
+
+    // Return the 90th percentile of the time of a call, in microseconds
+    @Override
+    public double getP90Micros() {
+        return percentileNanos(0.9) / 1e3;
+    }
+
+    // Return the 99th percentile of the time of a call, in microseconds
+    @Override
+    public double getP99Micros() {
+        return percentileNanos(0.99) / 1e3;
+    }
+
+    // Return the longest call, in microseconds
+    @Override
+    public double getMaxMicros() {
+        return maxNanos.get() / 1e3;
+    }
+}
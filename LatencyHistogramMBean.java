@@ -0,0 +1,30 @@
+/**
+ * The JMX view of a LatencyHistogram. The times are those of the timed calls only; percentiles are
+ * the upper bound of the bucket they fall in, so they are at most a quarter above the exact value.
+ */
+public interface LatencyHistogramMBean {
+
+    // Return the name of the measured operation
+    String getName();
+
+    // Return the number of measured calls
+    long getCount();
+
+    // Return the number of those calls that were timed
+    long getTimedCount();
+
+    // Return the mean time of a call, in microseconds
+    double getMeanMicros();
+
+    // Return the median time of a call, in microseconds
+    double getP50Micros();
+
+    // Return the 90th percentile of the time of a call, in microseconds
+    double getP90Micros();
+
+    // Return the 99th percentile of the time of a call, in microseconds
+    double getP99Micros();
+
+    // Return the longest call, in microseconds
+    double getMaxMicros();
+}
@@ -0,0 +1,384 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An AI player that chooses its moves by Monte Carlo Tree Search with the UCT selection rule.
+ * Each playout walks down the tree, choosing at every node the move with the best balance of
+ * result and uncertainty, adds the children of the node it ends on, and finishes the game with
+ * random simple-disc moves (a "rollout"). The result is then counted in every node on the path.
+ *
+ * Several threads grow the same tree at once, each on its own copy of the engine (see SearchableLogic.copy).
+ * A thread counts its visit in a node as soon as it passes through it, before the result is known
+ * (a "virtual loss"), so the other threads are steered to other moves in the meantime.
+ * Rollouts use makeMove/unmakeMove, so they never log and never allocate.
+ *
+ * The tree is kept between moves: when the next move is asked for, the node of the position reached
+ * (after this player's move and the opponent's reply) becomes the new root with all its playouts.
+ *
+ * The time budget is read from the system property "reversi.mcts.timeMs" (1000 ms by default), and the
+ * number of threads from "reversi.mcts.threads" (by default the number of available processors).
+ * When "reversi.ai.stats" is true, each move prints the number of playouts and playouts per second.
+ */
+public class MctsAI extends AIPlayer {
+
+    // Default time budget per move, in milliseconds
+    private static final long DEFAULT_TIME_MS = Long.getLong("reversi.mcts.timeMs", 1000);
+    // Default number of threads
+    private static final int DEFAULT_THREADS =
+            Integer.getInteger("reversi.mcts.threads", Runtime.getRuntime().availableProcessors());
+    private static final boolean PRINT_STATS = Boolean.getBoolean("reversi.ai.stats");
+    // Exploration constant of UCT (sqrt(2) for results between 0 and 1)
+    private static final double EXPLORATION = 1.4;
+    // Playouts between two checks of the clock, per thread
+    private static final int CHECK_INTERVAL = 64;
+    // Pool shared by the MctsAI players created with the default constructor
+    private static ForkJoinPool sharedPool;
+
+    /**
+     * A node of the search tree: the position reached by a move, with the playouts through it.
+     * Results are counted in half points (2 for a win, 1 for a draw) for the player who made the move.
+     */
+    private static final class Node {
+        // The encoded move that leads to this node, and the owner code (1 or 2) of the player who made it
+        final int move;
+        final int mover;
+        // Zobrist key of the position, set by the first playout that reaches the node
+        volatile long key;
+        // The children, one per move; null until the node is expanded, empty when the game is over
+        volatile Node[] children;
+        final AtomicInteger visits = new AtomicInteger();
+        final AtomicLong halfPoints = new AtomicLong();
+
+        Node(int move, int mover) {
+            this.move = move;
+            this.mover = mover;
+        }
+    }
+
+    private final long timeBudgetMs;
+    private final int threads;
+    private final ForkJoinPool pool;
+    // The root of the tree of the last move, kept for the next one
+    private Node root;
+    // Seeds the random generator of each thread
+    private final SplittableRandom seeds = new SplittableRandom();
+    // Statistics of the last move
+    private long lastPlayouts;
+    private long lastPlayoutsPerSecond;
+
+    /**
+     * Constructs an MctsAI with the default time budget and number of threads.
+     *
+     * @param isPlayerOne A boolean indicating whether this AI is Player 1 (true) or Player 2 (false).
+     */
+    public MctsAI(boolean isPlayerOne) {
+        this(isPlayerOne, DEFAULT_TIME_MS, DEFAULT_THREADS, sharedPool());
+    }
+
+    /**
+     * Constructs an MctsAI.
+     *
+     * @param isPlayerOne A boolean indicating whether this AI is Player 1 (true) or Player 2 (false).
+     * @param timeBudgetMs The time limit of each move, in milliseconds.
+     * @param threads The number of threads that grow the tree (at least 1).
+     * @param pool The pool the threads run on.
+     */
+    public MctsAI(boolean isPlayerOne, long timeBudgetMs, int threads, ForkJoinPool pool) {
+        super(isPlayerOne);
+        if (threads < 1)
+            throw new IllegalArgumentException("Number of threads must be at least 1: " + threads);
+        this.timeBudgetMs = timeBudgetMs;
+        this.threads = threads;
+        this.pool = pool;
+    }
+
+    // Return the shared pool, creating it on first use
+    private static synchronized ForkJoinPool sharedPool() {
+        if (sharedPool == null)
+            sharedPool = new ForkJoinPool(Math.max(1, DEFAULT_THREADS));
+        return sharedPool;
+    }
+
+    /**
+     * Runs playouts until the time budget is used up and returns the most visited move.
+     * The given game is only copied, never changed.
+     *
+     * @param gameStatus The current game status.
+     * @return The chosen move, or null if there are no valid moves.
+     */
+    @Override
+    public Move makeMove(PlayableLogic gameStatus) {
+        long start = EngineMetrics.start();
+        SearchableLogic gameLogic = (SearchableLogic) gameStatus;
+        int move = search(gameLogic, System.nanoTime() + timeBudgetMs * 1_000_000L, null);
+        Move result = null;
+        if (move >= 0) {
+            int square = SearchableLogic.moveSquare(move);
+            int boardSize = gameLogic.getBoardSize();
+            result = new Move(SearchableLogic.createDisc(SearchableLogic.moveType(move), gameLogic.getCurrentPlayer()),
+                    Position.of(square / boardSize, square % boardSize), null);
+        }
+        recordMoveTime(start);
+        return result;
+    }
+
+    /**
+     * Runs playouts for an asynchronous move request until its deadline or until it is stopped.
+     * The first thread reports the most visited move after every batch of playouts.
+     *
+     * @param logic The engine, owned by this search.
+     * @param control The deadline and stop flag of the request.
+     * @return The most visited move, or -1 if there is no valid move.
+     */
+    @Override
+    protected int searchMove(SearchableLogic logic, SearchControl control) {
+        return search(logic, control.getDeadline(), control);
+    }
+
+    /**
+     * Grows the tree with all the threads until the deadline and records the statistics.
+     * A position found in the opening book (see AIPlayer.bookMove) is answered from the book without searching,
+     * and a position near the end of the game is first given half the time to be solved exactly (see
+     * AIPlayer.endgameMove).
+     *
+     * @param gameLogic The engine holding the current position; it is only copied.
+     * @param deadline The System.nanoTime() value at which to stop.
+     * @param control The control of an asynchronous request, or null.
+     * @return The most visited move (see SearchableLogic.encodeMove), or -1 if there is no valid move.
+     */
+    private int search(SearchableLogic gameLogic, long deadline, SearchControl control) {
+        int bookMove = bookMove(gameLogic);
+        if (bookMove >= 0)
+            return bookMove;
+        int endgameMove = endgameMove(gameLogic, System.nanoTime() + (deadline - System.nanoTime()) / 2, control);
+        if (endgameMove >= 0)
+            return endgameMove;
+        long start = System.nanoTime();
+        root = reuseRoot(gameLogic);
+        expand(root, gameLogic, new int[gameLogic.getBoardSize() * gameLogic.getBoardSize()]);
+        if (root.children.length == 0)
+            return -1;
+        Node searchRoot = root;
+
+        long playoutsBefore = root.visits.get();
+        ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[threads];
+        for (int i = 0; i < threads; i++) {
+            SearchableLogic copy = gameLogic.copy();
+            SplittableRandom random = seeds.split();
+            boolean reporter = i == 0;
+            tasks[i] = pool.submit(() -> grow(copy, random, deadline, control, reporter ? searchRoot : null));
+        }
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+
+        Node best = mostVisited(root);
+        long elapsed = Math.max(1, System.nanoTime() - start);
+        lastPlayouts = root.visits.get() - playoutsBefore;
+        EngineMetrics.addPlayouts(lastPlayouts);
+        lastPlayoutsPerSecond = lastPlayouts * 1_000_000_000L / elapsed;
+        if (PRINT_STATS)
+            System.out.println("MctsAI: " + lastPlayouts + " playouts, " + lastPlayoutsPerSecond + " playouts/s, "
+                    + threads + " threads");
+        return best.move;
+    }
+
+    // Return the most visited child of an expanded node
+    private static Node mostVisited(Node node) {
+        Node best = node.children[0];
+        for (Node child : node.children) {
+            if (child.visits.get() > best.visits.get())
+                best = child;
+        }
+        return best;
+    }
+
+    /**
+     * Finds the node of the current position in the tree of the last move: the root itself,
+     * or a child or grandchild of it. Anything else starts a new tree.
+     *
+     * @param gameLogic The engine holding the current position.
+     * @return The root for this move.
+     */
+    private Node reuseRoot(SearchableLogic gameLogic) {
+        long key = gameLogic.hashKey();
+        int mover = gameLogic.isFirstPlayerTurn() ? 2 : 1;
+        if (root != null) {
+            if (root.key == key)
+                return root;
+            Node[] children = root.children;
+            if (children != null) {
+                for (Node child : children) {
+                    if (child.key == key)
+                        return child;
+                    Node[] grandchildren = child.children;
+                    if (grandchildren != null) {
+                        for (Node grandchild : grandchildren) {
+                            if (grandchild.key == key)
+                                return grandchild;
+                        }
+                    }
+                }
+            }
+        }
+        Node node = new Node(-1, mover);
+        node.key = key;
+        return node;
+    }
+
+    /**
+     * The loop of one thread: runs playouts on its own engine until the deadline.
+     *
+     * @param logic The thread's copy of the engine, at the root position.
+     * @param random The thread's random generator.
+     * @param deadline The System.nanoTime() value at which to stop.
+     * @param control The control of an asynchronous request, checked with the deadline; or null.
+     * @param searchRoot The root of the tree, whose most visited move this thread reports to the control;
+     *                   null if another thread reports.
+     */
+    private void grow(SearchableLogic logic, SplittableRandom random, long deadline, SearchControl control, Node searchRoot) {
+        int[] buffer = new int[logic.getBoardSize() * logic.getBoardSize()];
+        Node[] path = new Node[buffer.length + 1];
+        do {
+            for (int i = 0; i < CHECK_INTERVAL; i++) {
+                playout(logic, random, buffer, path);
+            }
+            if (control != null && searchRoot != null)
+                control.offer(mostVisited(searchRoot).move);
+        } while (System.nanoTime() - deadline < 0 && (control == null || !control.isStopped()));
+    }
+
+    /**
+     * Runs one playout: selection down the tree, expansion of the last node, a random rollout,
+     * and the update of every node on the path. The engine is back at the root position afterwards.
+     *
+     * @param logic The engine, at the root position.
+     * @param random The random generator.
+     * @param buffer A move buffer of getBoardSize() * getBoardSize() entries.
+     * @param path A buffer for the nodes on the path.
+     */
+    private void playout(SearchableLogic logic, SplittableRandom random, int[] buffer, Node[] path) {
+        Node node = root;
+        node.visits.incrementAndGet();
+        path[0] = node;
+        int depth = 0;
+        while (true) {
+            Node[] children = node.children;
+            if (children == null) {
+                // A leaf: expand it once it has been visited before, otherwise roll out from it
+                if (node.visits.get() < 2)
+                    break;
+                children = expand(node, logic, buffer);
+            }
+            if (children.length == 0)
+                break;  // The game is over
+            node = select(node, children);
+            node.visits.incrementAndGet();  // Virtual loss until the result is known
+            logic.makeMove(SearchableLogic.moveSquare(node.move), SearchableLogic.moveType(node.move));
+            if (node.key == 0)
+                node.key = logic.hashKey();
+            path[++depth] = node;
+        }
+
+        int winner = rollout(logic, random, buffer);
+        for (int i = depth; i >= 0; i--) {
+            Node n = path[i];
+            if (winner == 0)
+                n.halfPoints.incrementAndGet();
+            else if (winner == n.mover)
+                n.halfPoints.addAndGet(2);
+            if (i > 0)
+                logic.unmakeMove();
+        }
+    }
+
+    /**
+     * Adds the children of a node, one per valid square and disc type the player has left.
+     * If another thread is expanding the same node, waits for it and uses its children.
+     *
+     * @param node The node, whose position the engine holds.
+     * @param logic The engine.
+     * @param buffer A move buffer.
+     * @return The children of the node.
+     */
+    private static Node[] expand(Node node, SearchableLogic logic, int[] buffer) {
+        synchronized (node) {
+            if (node.children != null)
+                return node.children;
+            int count = logic.validMoves(buffer);
+            Player player = logic.getCurrentPlayer();
+            int types = 1 + (player.getNumber_of_bombs() > 0 ? 1 : 0) + (player.getNumber_of_unflippedable() > 0 ? 1 : 0);
+            int mover = logic.isFirstPlayerTurn() ? 1 : 2;
+            Node[] children = new Node[count * types];
+            int n = 0;
+            for (int k = 0; k < count; k++) {
+                children[n++] = new Node(SearchableLogic.encodeMove(buffer[k], SearchableLogic.SIMPLE), mover);
+                if (player.getNumber_of_bombs() > 0)
+                    children[n++] = new Node(SearchableLogic.encodeMove(buffer[k], SearchableLogic.BOMB), mover);
+                if (player.getNumber_of_unflippedable() > 0)
+                    children[n++] = new Node(SearchableLogic.encodeMove(buffer[k], SearchableLogic.UNFLIPPABLE), mover);
+            }
+            node.children = children;
+            return children;
+        }
+    }
+
+    /**
+     * Chooses the child with the highest UCT value; a child that was never visited comes first.
+     *
+     * @param parent The node.
+     * @param children Its children.
+     * @return The child to descend into.
+     */
+    private static Node select(Node parent, Node[] children) {
+        double logVisits = Math.log(Math.max(1, parent.visits.get()));
+        Node best = null;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (Node child : children) {
+            int visits = child.visits.get();
+            if (visits == 0)
+                return child;
+            double value = child.halfPoints.get() / (2.0 * visits) + EXPLORATION * Math.sqrt(logVisits / visits);
+            if (value > bestValue) {
+                bestValue = value;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Plays random simple-disc moves until the game is over, then takes them all back.
+     *
+     * @param logic The engine.
+     * @param random The random generator.
+     * @param buffer A move buffer.
+     * @return The owner code of the winner (1 or 2), or 0 for a draw.
+     */
+    private static int rollout(SearchableLogic logic, SplittableRandom random, int[] buffer) {
+        int plies = 0;
+        int count;
+        while ((count = logic.validMoves(buffer)) > 0) {
+            logic.makeMove(buffer[random.nextInt(count)], SearchableLogic.SIMPLE);
+            plies++;
+        }
+        int difference = logic.countDiscs(true) - logic.countDiscs(false);
+        for (; plies > 0; plies--) {
+            logic.unmakeMove();
+        }
+        return difference > 0 ? 1 : difference < 0 ? 2 : 0;
+    }
+
+    // Return the number of playouts run for the last move
+    public long getLastPlayouts() {
+        return lastPlayouts;
+    }
+
+    // Return the speed of the last move, in playouts per second
+    public long getLastPlayoutsPerSecond() {
+        return lastPlayoutsPerSecond;
+    }
+}
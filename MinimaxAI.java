@@ -0,0 +1,236 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * An AI player that looks ahead with a negamax search with alpha-beta pruning.
+ * The search deepens one ply at a time (iterative deepening), tries the best line of the last iteration
+ * first, and stops when the time budget of the move is used up. It branches over the disc type
+ * (simple, bomb, unflippable) as well as the square.
+ * The time budget is read from the system property "reversi.minimax.timeMs" (1000 ms by default), and the
+ * size of the off-heap transposition table from "reversi.tt.mb" (16 MB by default). The table belongs to
+ * the thread the move is asked on, not to the player: all the MinimaxAI players that move on a thread
+ * (one after the other) share its table, so a tournament or self-play worker allocates one table for all
+ * its games instead of one per player.
+ * When the system property "reversi.ai.stats" is true, each move prints the depth reached and the
+ * number of nodes searched per second.
+ * With more than one thread, the search runs as a ParallelSearch, with its helper threads on the given ForkJoinPool;
+ * the threads share the transposition table.
+ * The searches score positions with the PatternEvaluator read from the weights file named by the system
+ * property "reversi.weights" (or set with setPatternEvaluator) when its board size matches the game's,
+ * and with the hand-tuned evaluation of AlphaBetaSearch otherwise.
+ */
+public class MinimaxAI extends AIPlayer {
+
+    // Default time budget per move, in milliseconds
+    static final long DEFAULT_TIME_MS = Long.getLong("reversi.minimax.timeMs", 1000);
+    // Default size of the transposition table, in MB
+    private static final int DEFAULT_TABLE_MB = Integer.getInteger("reversi.tt.mb", 16);
+    // Print search statistics after each move
+    private static final boolean PRINT_STATS = Boolean.getBoolean("reversi.ai.stats");
+    // The trained evaluation shared by all MinimaxAI players, read on first use; null if there is none
+    private static PatternEvaluator patternEvaluator;
+    private static boolean patternEvaluatorLoaded;
+    // The transposition table of the searches run from each thread, allocated on its first move
+    private static final ThreadLocal<TranspositionTable> TABLES =
+            ThreadLocal.withInitial(() -> new TranspositionTable(DEFAULT_TABLE_MB));
+
+    // Time budget per move, in milliseconds
+    private final long timeBudgetMs;
+    // Number of search threads, and the pool they run on when there is more than one
+    private final int threads;
+    private final ForkJoinPool pool;
+    // The table of the thread the searches below were built on
+    private TranspositionTable table;
+    // The search and the engine it was built for; rebuilt when a different engine is passed in
+    private AlphaBetaSearch search;
+    private SearchableLogic searchLogic;
+    // The parallel search, used instead when there is more than one thread
+    private ParallelSearch parallelSearch;
+    // Statistics of the last move
+    private long lastNodes;
+    private long lastNodesPerSecond;
+    private int lastDepth;
+
+    /**
+     * Constructs a MinimaxAI with the default time budget.
+     *
+     * @param isPlayerOne A boolean indicating whether this AI is Player 1 (true) or Player 2 (false).
+     */
+    public MinimaxAI(boolean isPlayerOne) {
+        this(isPlayerOne, DEFAULT_TIME_MS);
+    }
+
+    /**
+     * Constructs a MinimaxAI with the given time budget.
+     *
+     * @param isPlayerOne A boolean indicating whether this AI is Player 1 (true) or Player 2 (false).
+     * @param timeBudgetMs The hard time limit of each move, in milliseconds.
+     */
+    public MinimaxAI(boolean isPlayerOne, long timeBudgetMs) {
+        this(isPlayerOne, timeBudgetMs, 1, null);
+    }
+
+    /**
+     * Constructs a MinimaxAI that searches with several threads.
+     *
+     * @param isPlayerOne A boolean indicating whether this AI is Player 1 (true) or Player 2 (false).
+     * @param timeBudgetMs The hard time limit of each move, in milliseconds.
+     * @param threads The number of search threads (at least 1).
+     * @param pool The pool the search threads run on; may be null when threads is 1.
+     */
+    public MinimaxAI(boolean isPlayerOne, long timeBudgetMs, int threads, ForkJoinPool pool) {
+        super(isPlayerOne);
+        if (threads < 1)
+            throw new IllegalArgumentException("Number of threads must be at least 1: " + threads);
+        if (threads > 1 && pool == null)
+            throw new IllegalArgumentException("A parallel search needs a pool");
+        this.timeBudgetMs = timeBudgetMs;
+        this.threads = threads;
+        this.pool = pool;
+    }
+
+    /**
+     * Searches the current position until the time budget runs out and returns the best move found.
+     * A single-threaded search plays and takes back moves on the given game with makeMove/unmakeMove,
+     * and leaves it as it found it; a parallel search works on copies of the game.
+     *
+     * @param gameStatus The current game status.
+     * @return The best move found, or null if there are no valid moves.
+     */
+    @Override
+    public Move makeMove(PlayableLogic gameStatus) {
+        long start = EngineMetrics.start();
+        SearchableLogic gameLogic = (SearchableLogic) gameStatus;
+        int move = search(gameLogic, System.nanoTime() + timeBudgetMs * 1_000_000L, null);
+        Move result = null;
+        if (move >= 0) {
+            int square = SearchableLogic.moveSquare(move);
+            int boardSize = gameLogic.getBoardSize();
+            result = new Move(SearchableLogic.createDisc(SearchableLogic.moveType(move), gameLogic.getCurrentPlayer()),
+                    Position.of(square / boardSize, square % boardSize), null);
+        }
+        recordMoveTime(start);
+        return result;
+    }
+
+    /**
+     * Searches the engine of an asynchronous move request until the request's deadline, or until it is
+     * stopped, reporting the move of every finished iteration.
+     *
+     * @param logic The engine, owned by this search.
+     * @param control The deadline and stop flag of the request.
+     * @return The best move found, or -1 if there is no valid move.
+     */
+    @Override
+    protected int searchMove(SearchableLogic logic, SearchControl control) {
+        return search(logic, control.getDeadline(), control);
+    }
+
+    /**
+     * Runs the search, single-threaded or parallel, and records its statistics.
+     * A position found in the opening book (see AIPlayer.bookMove) is answered from the book without searching,
+     * and a position near the end of the game is first given half the time to be solved exactly (see
+     * AIPlayer.endgameMove).
+     *
+     * @param gameLogic The engine holding the position to search.
+     * @param deadline The System.nanoTime() value at which the search must stop.
+     * @param control The control of an asynchronous request, or null.
+     * @return The best move found (see SearchableLogic.encodeMove), or -1 if there is no valid move.
+     */
+    private int search(SearchableLogic gameLogic, long deadline, SearchControl control) {
+        int bookMove = bookMove(gameLogic);
+        if (bookMove >= 0)
+            return bookMove;
+        int endgameMove = endgameMove(gameLogic, System.nanoTime() + (deadline - System.nanoTime()) / 2, control);
+        if (endgameMove >= 0)
+            return endgameMove;
+        TranspositionTable threadTable = TABLES.get();
+        if (table != threadTable) {
+            // Moved to another thread: the searches are rebuilt on its table
+            table = threadTable;
+            search = null;
+            searchLogic = null;
+            parallelSearch = null;
+        }
+        long start = System.nanoTime();
+        int move;
+        PatternEvaluator evaluator = getPatternEvaluator();
+        if (evaluator != null && evaluator.getBoardSize() != gameLogic.getBoardSize())
+            evaluator = null;
+        if (threads > 1) {
+            if (parallelSearch == null)
+                parallelSearch = new ParallelSearch(table, pool, threads);
+            parallelSearch.setControl(control);
+            parallelSearch.setEvaluator(evaluator);
+            move = parallelSearch.search(gameLogic, AlphaBetaSearch.MAX_DEPTH, deadline);
+            lastNodes = parallelSearch.getNodes();
+            lastDepth = parallelSearch.getCompletedDepth();
+            EngineMetrics.addSearch(lastNodes, parallelSearch.getTableProbes(), parallelSearch.getTableHits());
+        } else {
+            if (searchLogic != gameLogic) {
+                search = new AlphaBetaSearch(gameLogic, table);
+                searchLogic = gameLogic;
+            }
+            search.setControl(control);
+            search.setEvaluator(evaluator);
+            move = search.search(AlphaBetaSearch.MAX_DEPTH, deadline);
+            lastNodes = search.getNodes();
+            lastDepth = search.getCompletedDepth();
+            EngineMetrics.addSearch(lastNodes, search.getTableProbes(), search.getTableHits());
+        }
+        long elapsed = Math.max(1, System.nanoTime() - start);
+        lastNodesPerSecond = lastNodes * 1_000_000_000L / elapsed;
+        if (PRINT_STATS)
+            System.out.println(getClass().getSimpleName() + ": depth " + lastDepth + ", " + lastNodes + " nodes, "
+                    + lastNodesPerSecond + " nodes/s" + (threads > 1 ? ", " + threads + " threads" : ""));
+        return move;
+    }
+
+    /**
+     * Sets the trained evaluation of all MinimaxAI players, instead of the one named by "reversi.weights".
+     *
+     * @param evaluator The evaluator, or null for the hand-tuned evaluation.
+     */
+    public static synchronized void setPatternEvaluator(PatternEvaluator evaluator) {
+        patternEvaluator = evaluator;
+        patternEvaluatorLoaded = true;
+    }
+
+    /**
+     * Returns the trained evaluation of all MinimaxAI players, reading the weights file named by the system
+     * property "reversi.weights" on the first call. Weights that cannot be read are reported once and not
+     * used, so the game goes on with the hand-tuned evaluation.
+     *
+     * @return The evaluator, or null if there is none.
+     */
+    public static synchronized PatternEvaluator getPatternEvaluator() {
+        if (!patternEvaluatorLoaded) {
+            patternEvaluatorLoaded = true;
+            String file = System.getProperty("reversi.weights");
+            if (file != null) {
+                try {
+                    patternEvaluator = PatternEvaluator.load(Path.of(file));
+                } catch (IOException e) {
+                    System.err.println("Pattern weights not used: " + e);
+                }
+            }
+        }
+        return patternEvaluator;
+    }
+
+    // Return the number of positions searched for the last move
+    public long getLastNodes() {
+        return lastNodes;
+    }
+
+    // Return the search speed of the last move, in positions per second
+    public long getLastNodesPerSecond() {
+        return lastNodesPerSecond;
+    }
+
+    // Return the depth of the last finished iteration of the last move
+    public int getLastDepth() {
+        return lastDepth;
+    }
+}
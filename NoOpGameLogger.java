@@ -0,0 +1,46 @@
+/**
+ * A GameLogger that ignores every event.
+ * All the methods are empty, so once the JIT inlines them a game logged with this sink
+ * runs as if it had no logging at all. Use it for headless AI runs.
+ */
+public class NoOpGameLogger implements GameLogger {
+
+    // A shared instance; the logger has no state
+    public static final NoOpGameLogger INSTANCE = new NoOpGameLogger();
+
+    @Override
+    public void discPlaced(boolean firstPlayer, int discType, int row, int col) {
+    }
+
+    @Override
+    public void discFlipped(boolean firstPlayer, int discType, int row, int col) {
+    }
+
+    @Override
+    public void moveFinished() {
+    }
+
+    @Override
+    public void undoStarted() {
+    }
+
+    @Override
+    public void undoUnavailable() {
+    }
+
+    @Override
+    public void undoRemoved(int discType, int row, int col) {
+    }
+
+    @Override
+    public void undoFlipped(int discType, int row, int col) {
+    }
+
+    @Override
+    public void undoFinished() {
+    }
+
+    @Override
+    public void gameWon(int winner, int count1, int count2) {
+    }
+}
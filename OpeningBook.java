@@ -0,0 +1,106 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A read-only opening book: the best-known replies to positions of the first plies of the game,
+ * looked up by Zobrist key (see Zobrist; the keys include the side to move and the special discs left,
+ * so a reply can be a bomb or an unflippable disc as well as a simple disc).
+ *
+ * The book is a binary file written by OpeningBookBuilder, read through a MappedByteBuffer: opening
+ * it only maps the file, and a lookup is a binary search over the mapped entries, so a book of any size
+ * costs no heap, no loading time, and a few microseconds per lookup. The operating system pages in the
+ * parts that are used. Lookups only read the buffer, so any number of threads can share one book.
+ *
+ * File layout (big-endian): a header of MAGIC, VERSION, the board size and the number of entries
+ * (4 ints), then the entries, sorted by key and, for the same key, best reply first. Each entry is
+ * ENTRY_BYTES long: the key (long), the encoded move (short, see SearchableLogic.encodeMove), the score
+ * of the move for the player making it in per mille (short), and the number of games it was played in (int).
+ */
+public final class OpeningBook {
+
+    static final int MAGIC = 0x52564250;  // "RVBP"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    static final int ENTRY_BYTES = 16;
+
+    private final MappedByteBuffer buffer;
+    private final int boardSize;
+    private final int entries;
+
+    // Wraps a mapped book file whose header was checked
+    private OpeningBook(MappedByteBuffer buffer) {
+        this.buffer = buffer;
+        this.boardSize = buffer.getInt(8);
+        this.entries = buffer.getInt(12);
+    }
+
+    /**
+     * Maps a book file. The file stays mapped after the channel is closed, until the book is unreachable.
+     *
+     * @param file The book file.
+     * @return The book.
+     * @throws IOException If the file cannot be read or is not a book.
+     */
+    public static OpeningBook open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (channel.size() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+                throw new IOException(file + " is not an opening book of version " + VERSION);
+            if ((long) HEADER_BYTES + (long) buffer.getInt(12) * ENTRY_BYTES != channel.size())
+                throw new IOException(file + " is truncated");
+            return new OpeningBook(buffer);
+        }
+    }
+
+    /**
+     * Looks up the best reply to a position.
+     *
+     * @param boardSize The size of the board of the position.
+     * @param key The Zobrist key of the position (see SearchableLogic.hashKey).
+     * @return The encoded move with the best score, or -1 if the position is not in the book.
+     */
+    public int lookup(int boardSize, long key) {
+        if (boardSize != this.boardSize)
+            return -1;
+        int index = firstEntry(key);
+        if (index == entries || keyAt(index) != key)
+            return -1;
+        return buffer.getShort(HEADER_BYTES + index * ENTRY_BYTES + 8);
+    }
+
+    /**
+     * Finds the first entry whose key is not smaller than the given key.
+     *
+     * @param key The key.
+     * @return The index of the entry, or the number of entries if all keys are smaller.
+     */
+    private int firstEntry(long key) {
+        int low = 0, high = entries;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keyAt(middle) < key)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    // Return the key of an entry
+    private long keyAt(int index) {
+        return buffer.getLong(HEADER_BYTES + index * ENTRY_BYTES);
+    }
+
+    // Return the size of the board the book was built for
+    public int getBoardSize() {
+        return boardSize;
+    }
+
+    // Return the number of entries (replies) in the book
+    public int getEntries() {
+        return entries;
+    }
+}
@@ -0,0 +1,233 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Builds an OpeningBook from self-play. Every game opens with random moves for the first plies
+ * (now and then a bomb or an unflippable disc, while the player has them) and is then played out
+ * by an AI player on both sides. Every opening move is credited with the result of its game for the
+ * player who made it, and the book keeps, for every position, the replies played in enough games,
+ * best score first. The scores count one extra draw per reply, so a reply that won its only two games
+ * does not outrank one that won most of a hundred.
+ *
+ * Games run in parallel on a thread pool, each with its own engine and players, like in Tournament.
+ *
+ * Usage: java OpeningBookBuilder [--games N] [--plies N] [--min-games N] [--threads N] [--size N]
+ *                                [--player AI type] [--seed N] [--out book.bin]
+ * The AIs then use the book when started with -Dreversi.book=book.bin.
+ */
+public class OpeningBookBuilder {
+
+    // Chance of a random opening move using a bomb, and an unflippable disc, while the player has one
+    private static final int SPECIAL_DISC_ONE_IN = 10;
+
+    private final int plies;
+    private final int boardSize;
+    private final String player;
+    // Statistics per position key and encoded reply: {games, half points of the player making the reply}
+    private final Map<Long, Map<Integer, long[]>> replies = new HashMap<>();
+    private int gamesPlayed;
+
+    /**
+     * Constructs a builder.
+     *
+     * @param plies The number of random opening plies of every game, which the book covers.
+     * @param boardSize The size of the board.
+     * @param player The registered AI type that plays the games out.
+     */
+    public OpeningBookBuilder(int plies, int boardSize, String player) {
+        this.plies = plies;
+        this.boardSize = boardSize;
+        this.player = player;
+    }
+
+    /**
+     * Plays games and adds their openings to the statistics.
+     *
+     * @param games The number of games to play.
+     * @param threads The number of games played at the same time.
+     * @param seed The seed of the first game's random opening; every game uses the next seed.
+     * @throws InterruptedException If the thread is interrupted while waiting for the games.
+     */
+    public void play(int games, int threads, long seed) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<long[]>> results = new ArrayList<>();
+            for (int g = 0; g < games; g++) {
+                long gameSeed = seed + g;
+                results.add(executor.submit(() -> playGame(new SplittableRandom(gameSeed))));
+            }
+            // The statistics are only updated here, on this thread, so they need no locking
+            for (Future<long[]> result : results) {
+                long[] record;
+                try {
+                    record = result.get();
+                } catch (ExecutionException e) {
+                    throw new RuntimeException("Self-play game failed", e.getCause());
+                }
+                for (int k = 0; k < record.length; k += 3) {
+                    long[] stats = replies.computeIfAbsent(record[k], key -> new HashMap<>())
+                            .computeIfAbsent((int) record[k + 1], move -> new long[2]);
+                    stats[0]++;
+                    stats[1] += record[k + 2];
+                }
+                gamesPlayed++;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Plays one game: random opening moves, then the AI on both sides.
+     *
+     * @param random The generator of the opening moves.
+     * @return For every opening move, three values: the key of the position, the encoded move,
+     *         and the half points the player who made it scored in the game (0, 1 or 2).
+     */
+    private long[] playGame(SplittableRandom random) {
+        SearchableLogic game = boardSize == 8 ? new BitboardGameLogic() : new GameLogic(boardSize);
+        game.setLogger(NoOpGameLogger.INSTANCE);
+        AIPlayer first = AIPlayer.createAIPlayer(player, true);
+        AIPlayer second = AIPlayer.createAIPlayer(player, false);
+        game.setPlayers(first, second);
+        game.reset();
+        int[] valid = new int[boardSize * boardSize];
+        long[] record = new long[3 * plies];
+        boolean[] moverIsFirst = new boolean[plies];
+        int recorded = 0;
+        while (true) {
+            int count = game.validMoves(valid);
+            if (count == 0)
+                break;
+            Player current = game.getCurrentPlayer();
+            int move;
+            if (recorded < plies) {
+                move = SearchableLogic.encodeMove(valid[random.nextInt(count)], randomDiscType(current, random));
+                record[3 * recorded] = game.hashKey();
+                record[3 * recorded + 1] = move;
+                moverIsFirst[recorded++] = game.isFirstPlayerTurn();
+            } else {
+                Move aiMove = ((AIPlayer) current).makeMove(game);
+                move = SearchableLogic.encodeMove(aiMove.position().row() * boardSize + aiMove.position().col(),
+                        SearchableLogic.typeOf(aiMove.disc()));
+            }
+            int square = SearchableLogic.moveSquare(move);
+            if (!game.locate_disc(Position.of(square / boardSize, square % boardSize),
+                    SearchableLogic.createDisc(SearchableLogic.moveType(move), current)))
+                throw new IllegalStateException(player + " made an invalid move: " + square);
+        }
+        int difference = Integer.signum(game.countDiscs(true) - game.countDiscs(false));
+        for (int k = 0; k < recorded; k++) {
+            record[3 * k + 2] = 1 + (moverIsFirst[k] ? difference : -difference);
+        }
+        return Arrays.copyOf(record, 3 * recorded);
+    }
+
+    // Choose the disc type of a random opening move: mostly simple, sometimes a special disc the player still has
+    static int randomDiscType(Player player, SplittableRandom random) {
+        int roll = random.nextInt(SPECIAL_DISC_ONE_IN);
+        if (roll == 0 && player.getNumber_of_bombs() > 0)
+            return SearchableLogic.BOMB;
+        if (roll == 1 && player.getNumber_of_unflippedable() > 0)
+            return SearchableLogic.UNFLIPPABLE;
+        return SearchableLogic.SIMPLE;
+    }
+
+    /**
+     * Writes the book: for every position, the replies played in at least minGames games, best score first.
+     *
+     * @param file The file to write.
+     * @param minGames The fewest games a reply must have been played in to be kept.
+     * @return The number of entries written.
+     * @throws IOException If the file cannot be written.
+     */
+    public int write(Path file, int minGames) throws IOException {
+        List<long[]> entries = new ArrayList<>();
+        for (Map.Entry<Long, Map<Integer, long[]>> position : replies.entrySet()) {
+            for (Map.Entry<Integer, long[]> reply : position.getValue().entrySet()) {
+                long games = reply.getValue()[0];
+                if (games < minGames)
+                    continue;
+                // One extra draw (2 half points out of 4) pulls replies with few games towards 50%
+                long score = Math.round(1000.0 * (reply.getValue()[1] + 2) / (2 * games + 4));
+                entries.add(new long[]{position.getKey(), reply.getKey(), score, games});
+            }
+        }
+        entries.sort((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0])
+                : a[2] != b[2] ? Long.compare(b[2], a[2]) : Long.compare(b[3], a[3]));
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(OpeningBook.MAGIC);
+            out.writeInt(OpeningBook.VERSION);
+            out.writeInt(boardSize);
+            out.writeInt(entries.size());
+            for (long[] entry : entries) {
+                out.writeLong(entry[0]);
+                out.writeShort((int) entry[1]);
+                out.writeShort((int) entry[2]);
+                out.writeInt((int) Math.min(entry[3], Integer.MAX_VALUE));
+            }
+        }
+        return entries.size();
+    }
+
+    // Return the number of games played so far
+    public int getGamesPlayed() {
+        return gamesPlayed;
+    }
+
+    // Return the number of different positions seen so far
+    public int getPositions() {
+        return replies.size();
+    }
+
+    /**
+     * Builds a book from the command line; see the class comment for the options.
+     *
+     * @param args The command-line arguments.
+     * @throws IOException If the book cannot be written.
+     * @throws InterruptedException If the thread is interrupted while waiting for the games.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        AIPlayer.registerAllAIPlayers();
+        int games = 10000;
+        int plies = 8;
+        int minGames = 4;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int size = 8;
+        String player = "GreedyAI";
+        long seed = 1;
+        Path out = Path.of("book.bin");
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--games": games = Integer.parseInt(args[++i]); break;
+                case "--plies": plies = Integer.parseInt(args[++i]); break;
+                case "--min-games": minGames = Integer.parseInt(args[++i]); break;
+                case "--threads": threads = Integer.parseInt(args[++i]); break;
+                case "--size": size = Integer.parseInt(args[++i]); break;
+                case "--player": player = args[++i]; break;
+                case "--seed": seed = Long.parseLong(args[++i]); break;
+                case "--out": out = Path.of(args[++i]); break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        OpeningBookBuilder builder = new OpeningBookBuilder(plies, size, player);
+        long start = System.nanoTime();
+        builder.play(games, threads, seed);
+        int entries = builder.write(out, minGames);
+        System.out.printf("%d games, %d positions, %d entries written to %s in %.1f s%n", builder.getGamesPlayed(),
+                builder.getPositions(), entries, out, (System.nanoTime() - start) / 1e9);
+    }
+}
@@ -0,0 +1,44 @@
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A MinimaxAI that searches with several threads at once (see ParallelSearch).
+ * The number of threads is read from the system property "reversi.search.threads"
+ * (by default the number of available processors). All ParallelMinimaxAI players share one
+ * ForkJoinPool of that size, created on first use.
+ */
+public class ParallelMinimaxAI extends MinimaxAI {
+
+    // Default number of search threads
+    private static final int DEFAULT_THREADS =
+            Integer.getInteger("reversi.search.threads", Runtime.getRuntime().availableProcessors());
+    // Pool shared by all the ParallelMinimaxAI players created with the default constructor
+    private static ForkJoinPool sharedPool;
+
+    /**
+     * Constructs a ParallelMinimaxAI with the default time budget and number of threads.
+     *
+     * @param isPlayerOne A boolean indicating whether this AI is Player 1 (true) or Player 2 (false).
+     */
+    public ParallelMinimaxAI(boolean isPlayerOne) {
+        super(isPlayerOne, DEFAULT_TIME_MS, DEFAULT_THREADS, sharedPool());
+    }
+
+    /**
+     * Constructs a ParallelMinimaxAI running on the given pool.
+     *
+     * @param isPlayerOne A boolean indicating whether this AI is Player 1 (true) or Player 2 (false).
+     * @param timeBudgetMs The hard time limit of each move, in milliseconds.
+     * @param threads The number of search threads.
+     * @param pool The pool the search threads run on.
+     */
+    public ParallelMinimaxAI(boolean isPlayerOne, long timeBudgetMs, int threads, ForkJoinPool pool) {
+        super(isPlayerOne, timeBudgetMs, threads, pool);
+    }
+
+    // Return the shared pool, creating it on first use
+    private static synchronized ForkJoinPool sharedPool() {
+        if (sharedPool == null)
+            sharedPool = new ForkJoinPool(Math.max(1, DEFAULT_THREADS));
+        return sharedPool;
+    }
+}
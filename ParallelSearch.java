@@ -0,0 +1,170 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * A parallel alpha-beta search that shares one transposition table between several threads ("Lazy SMP").
+ * Every thread runs its own AlphaBetaSearch on its own copy of the engine (see SearchableLogic.copy),
+ * so the threads never touch the same board. They only meet in the transposition table:
+ * what one thread has searched, the others find there and skip, which makes the main thread reach
+ * deeper than it would alone. Every other helper starts one ply deeper than the main thread, so the
+ * threads spread over different parts of the tree instead of all searching the same moves at once.
+ * The main search runs on the calling thread, and the helpers on a ForkJoinPool given by the caller, so
+ * the main search never waits for a free worker. The pool should have at least threads - 1 free workers;
+ * a helper that has not started when the main search is done never runs.
+ */
+public class ParallelSearch {
+
+    private final TranspositionTable table;
+    private final ForkJoinPool pool;
+    private final int threads;
+    // The searches of the move in progress, so that stop() can reach them
+    private volatile AlphaBetaSearch[] running;
+    // The control of an asynchronous move request, given to the main thread's search
+    private SearchControl control;
+    // The trained evaluation of the searches, or null for the hand-tuned one
+    private PatternEvaluator evaluator;
+    // Statistics of the last search
+    private long nodes;
+    private long tableProbes;
+    private long tableHits;
+    private int completedDepth;
+    private int bestScore;
+
+    /**
+     * Constructs a parallel search.
+     *
+     * @param table The transposition table shared by all the threads.
+     * @param pool The pool the helper searches run on.
+     * @param threads The number of searches to run at once (at least 1).
+     */
+    public ParallelSearch(TranspositionTable table, ForkJoinPool pool, int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("Number of threads must be at least 1: " + threads);
+        this.table = table;
+        this.pool = pool;
+        this.threads = threads;
+    }
+
+    /**
+     * Searches the current position of an engine with all the threads until the deadline, until
+     * maxDepth, or until the main thread finds a forced win or loss. The engine itself is only copied, never changed.
+     *
+     * @param logic The engine holding the position to search.
+     * @param maxDepth The deepest iteration to run.
+     * @param deadlineNanos The System.nanoTime() value at which the search must stop.
+     * @return The move of the thread that finished the deepest iteration (the main thread on a tie),
+     *         or -1 if there is no valid move.
+     */
+    public int search(SearchableLogic logic, int maxDepth, long deadlineNanos) {
+        table.newSearch();
+        AlphaBetaSearch[] searches = new AlphaBetaSearch[threads];
+        for (int i = 0; i < threads; i++) {
+            searches[i] = new AlphaBetaSearch(logic.copy(), table);
+            searches[i].setEvaluator(evaluator);
+        }
+        // Every search stops with the request, whether or not the main search is running yet; only the
+        // main search reports its moves
+        for (int i = 0; i < threads; i++) {
+            searches[i].setControl(control, i == 0);
+        }
+        running = searches;
+        // A helper runs only if it claims its slot first; the main thread claims the slots of the
+        // helpers still waiting for a worker when it is done, so it never waits for them
+        AtomicIntegerArray claimed = new AtomicIntegerArray(threads);
+        @SuppressWarnings("unchecked")
+        ForkJoinTask<Integer>[] tasks = (ForkJoinTask<Integer>[]) new ForkJoinTask<?>[threads];
+        for (int i = 1; i < threads; i++) {
+            AlphaBetaSearch search = searches[i];
+            int slot = i;
+            int firstDepth = 1 + (i & 1);
+            tasks[i] = pool.submit(() -> claimed.compareAndSet(slot, 0, 1)
+                    ? search.iterate(firstDepth, maxDepth, deadlineNanos) : -1);
+        }
+        // The helpers run until the main thread is done, whatever depth they have reached
+        int[] results = new int[threads];
+        results[0] = searches[0].iterate(1, maxDepth, deadlineNanos);
+        for (AlphaBetaSearch search : searches) {
+            search.stop();
+        }
+        for (int i = 1; i < threads; i++) {
+            results[i] = claimed.compareAndSet(i, 0, 1) ? -1 : tasks[i].join();
+        }
+        running = null;
+
+        int best = 0;
+        nodes = 0;
+        tableProbes = 0;
+        tableHits = 0;
+        for (int i = 0; i < threads; i++) {
+            nodes += searches[i].getNodes();
+            tableProbes += searches[i].getTableProbes();
+            tableHits += searches[i].getTableHits();
+            if (searches[i].getCompletedDepth() > searches[best].getCompletedDepth())
+                best = i;
+        }
+        completedDepth = searches[best].getCompletedDepth();
+        bestScore = searches[best].getBestScore();
+        return results[best];
+    }
+
+    /**
+     * Connects the next searches to an asynchronous move request; see AlphaBetaSearch.setControl.
+     *
+     * @param control The control of the request, or null for none.
+     */
+    public void setControl(SearchControl control) {
+        this.control = control;
+    }
+
+    /**
+     * Sets the evaluation of the next searches; see AlphaBetaSearch.setEvaluator.
+     *
+     * @param evaluator A trained evaluator, or null for the hand-tuned evaluation.
+     */
+    public void setEvaluator(PatternEvaluator evaluator) {
+        this.evaluator = evaluator;
+    }
+
+    /**
+     * Stops a running search as soon as possible, in all the threads.
+     */
+    public void stop() {
+        AlphaBetaSearch[] searches = running;
+        if (searches != null) {
+            for (AlphaBetaSearch search : searches) {
+                search.stop();
+            }
+        }
+    }
+
+    // Return the number of positions visited by all the threads in the last search
+    public long getNodes() {
+        return nodes;
+    }
+
+    // Return the number of transposition table lookups of all the threads in the last search
+    public long getTableProbes() {
+        return tableProbes;
+    }
+
+    // Return the number of those lookups that found an entry
+    public long getTableHits() {
+        return tableHits;
+    }
+
+    // Return the deepest iteration finished by any thread in the last search
+    public int getCompletedDepth() {
+        return completedDepth;
+    }
+
+    // Return the score of the returned move, for the player on turn at the root
+    public int getBestScore() {
+        return bestScore;
+    }
+
+    // Return the number of threads
+    public int getThreads() {
+        return threads;
+    }
+}
@@ -0,0 +1,281 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A position evaluator built from pattern tables, fitted to the final disc difference of real games
+ * (see PatternTrainer), for the AI searches.
+ *
+ * The patterns are square sets near the corners, each read as a base-3 number (0 for an empty square,
+ * 1 for a disc of the player to move, 2 for an opponent's disc) that indexes a table of weights:
+ * - corner: the 3x3 block at a corner;
+ * - edge: the first squares of an edge, from a corner;
+ * - second edge: the squares of the line next to it;
+ * - diagonal: the first squares of the diagonal, from a corner.
+ * Every pattern is taken at the four corners (rotated), and the four share one table. Lines hold the
+ * whole side of the board, up to MAX_LINE squares. On top of the patterns come the special discs
+ * (a weight for every square, disc type and owner), the special discs both players have left (one
+ * weight for every combination), a weight per valid move, and a constant. Every table exists once per
+ * game phase (PHASES, by the number of discs on the board).
+ *
+ * An evaluation is a table lookup per pattern, per special disc on the board, and a few more; the weights
+ * are in hundredths of a disc. The evaluator holds no state besides its weights, so any number of searches
+ * can share it.
+ *
+ * Weights file layout (big-endian): MAGIC, VERSION, the board size, the number of phases and the number
+ * of weights (5 ints), then the weights (shorts), phase by phase, in the order of the tables above.
+ */
+public final class PatternEvaluator {
+
+    static final int MAGIC = 0x52565057;  // "RVPW"
+    static final int VERSION = 1;
+    // Game phases, each with its own tables
+    static final int PHASES = 4;
+    // Longest line pattern; a table holds 3^length weights
+    static final int MAX_LINE = 10;
+    // Special discs a player can have left, plus one (Player starts with 3 bombs and 2 unflippable discs)
+    private static final int BOMB_STATES = 4;
+    private static final int UNFLIPPABLE_STATES = 3;
+
+    private final int boardSize;
+    // The squares of every pattern instance, and the offset of its table in a phase
+    private final int[][] instances;
+    private final int[] instanceOffset;
+    // Offsets in a phase of the special disc weights, the inventory weights, the mobility weight and the constant
+    private final int specialOffset;
+    private final int inventoryOffset;
+    private final int mobilityOffset;
+    private final int biasOffset;
+    private final int phaseSize;
+    private final int[] weights;
+
+    /**
+     * Constructs an evaluator with all weights 0, for PatternTrainer to fit.
+     *
+     * @param boardSize The size of the board.
+     */
+    PatternEvaluator(int boardSize) {
+        this(boardSize, null);
+    }
+
+    /**
+     * Constructs an evaluator with the given weights.
+     *
+     * @param boardSize The size of the board.
+     * @param weights The weights, in hundredths of a disc, in the layout of the weights file; or null for all 0.
+     * @throws IllegalArgumentException If the number of weights does not fit the board size.
+     */
+    PatternEvaluator(int boardSize, int[] weights) {
+        this.boardSize = boardSize;
+        int line = Math.min(boardSize, MAX_LINE);
+        // The patterns at the top-left corner, as (row, col) pairs; the other corners are rotations
+        int[][][] patterns = {
+                {{0, 0}, {0, 1}, {0, 2}, {1, 0}, {1, 1}, {1, 2}, {2, 0}, {2, 1}, {2, 2}},
+                line(line, 0, 0, 0, 1),
+                line(line, 1, 0, 0, 1),
+                line(line, 0, 0, 1, 1)
+        };
+        instances = new int[4 * patterns.length][];
+        instanceOffset = new int[instances.length];
+        int offset = 0;
+        for (int p = 0; p < patterns.length; p++) {
+            for (int rotation = 0; rotation < 4; rotation++) {
+                int[] squares = new int[patterns[p].length];
+                for (int k = 0; k < squares.length; k++) {
+                    int row = patterns[p][k][0], col = patterns[p][k][1];
+                    for (int r = 0; r < rotation; r++) {
+                        int turned = col;
+                        col = boardSize - 1 - row;
+                        row = turned;
+                    }
+                    squares[k] = row * boardSize + col;
+                }
+                instances[4 * p + rotation] = squares;
+                instanceOffset[4 * p + rotation] = offset;
+            }
+            offset += power3(patterns[p].length);
+        }
+        specialOffset = offset;
+        inventoryOffset = specialOffset + 4 * boardSize * boardSize;
+        mobilityOffset = inventoryOffset + BOMB_STATES * UNFLIPPABLE_STATES * BOMB_STATES * UNFLIPPABLE_STATES;
+        biasOffset = mobilityOffset + 1;
+        phaseSize = biasOffset + 1;
+        if (weights != null && weights.length != PHASES * phaseSize)
+            throw new IllegalArgumentException(weights.length + " weights do not fit a " + boardSize + "x"
+                    + boardSize + " board, which needs " + PHASES * phaseSize);
+        this.weights = weights == null ? new int[PHASES * phaseSize] : weights;
+    }
+
+    // Return the (row, col) pairs of a line of the given length, from a start square in a direction
+    private static int[][] line(int length, int row, int col, int rowStep, int colStep) {
+        int[][] squares = new int[length][];
+        for (int k = 0; k < length; k++) {
+            squares[k] = new int[]{row + k * rowStep, col + k * colStep};
+        }
+        return squares;
+    }
+
+    // Return 3 to the given power
+    private static int power3(int exponent) {
+        int result = 1;
+        for (int k = 0; k < exponent; k++) {
+            result *= 3;
+        }
+        return result;
+    }
+
+    /**
+     * Reads an evaluator from a weights file.
+     *
+     * @param file The weights file.
+     * @return The evaluator.
+     * @throws IOException If the file cannot be read or is not a weights file.
+     */
+    public static PatternEvaluator load(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+                throw new IOException(file + " is not a pattern weights file of version " + VERSION);
+            int boardSize = in.readInt();
+            int phases = in.readInt();
+            int[] weights = new int[in.readInt()];
+            if (phases != PHASES)
+                throw new IOException(file + " has " + phases + " phases instead of " + PHASES);
+            for (int i = 0; i < weights.length; i++) {
+                weights[i] = in.readShort();
+            }
+            try {
+                return new PatternEvaluator(boardSize, weights);
+            } catch (IllegalArgumentException e) {
+                throw new IOException(file + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Writes the weights to a file that load reads back.
+     *
+     * @param file The file to write.
+     * @throws IOException If the file cannot be written.
+     */
+    public void write(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(boardSize);
+            out.writeInt(PHASES);
+            out.writeInt(weights.length);
+            for (int weight : weights) {
+                out.writeShort(weight);
+            }
+        }
+    }
+
+    /**
+     * Evaluates a position for the player to move.
+     *
+     * @param logic The engine holding the position; its board size must be this evaluator's.
+     * @param mobility The number of valid squares of the player to move.
+     * @return The expected final disc difference (player to move minus opponent), in hundredths of a disc.
+     */
+    public int evaluate(SearchableLogic logic, int mobility) {
+        return walk(logic, mobility, null);
+    }
+
+    /**
+     * Lists the weights that make up the evaluation of a position, besides the mobility weight,
+     * for PatternTrainer. Each of them counts once.
+     *
+     * @param logic The engine holding the position.
+     * @param features The array to write the indexes of the weights to; 4 * boardSize * boardSize entries are enough.
+     * @return The number of indexes written.
+     */
+    int features(SearchableLogic logic, int[] features) {
+        return walk(logic, 0, features);
+    }
+
+    /**
+     * Returns the index of the weight per valid move that applies to a position, for PatternTrainer.
+     *
+     * @param logic The engine holding the position.
+     * @return The index of the weight.
+     */
+    int mobilityFeature(SearchableLogic logic) {
+        return mobilityFeature(phase(logic));
+    }
+
+    // Return the index of the weight per valid move of a game phase
+    int mobilityFeature(int phase) {
+        return phase * phaseSize + mobilityOffset;
+    }
+
+    /**
+     * Walks the weights that apply to a position: sums them, or lists their indexes.
+     *
+     * @param logic The engine holding the position.
+     * @param mobility The number of valid squares of the player to move (only used for the sum).
+     * @param features The array to write the indexes to, or null to sum the weights instead.
+     * @return The evaluation if features is null, or else the number of indexes written.
+     */
+    private int walk(SearchableLogic logic, int mobility, int[] features) {
+        int me = logic.isFirstPlayerTurn() ? 1 : 2;
+        int base = phase(logic) * phaseSize;
+        int score = 0, count = 0;
+        for (int i = 0; i < instances.length; i++) {
+            int[] squares = instances[i];
+            int index = 0;
+            for (int k = squares.length - 1; k >= 0; k--) {
+                int owner = logic.getOwnerAt(squares[k]);
+                index = 3 * index + (owner == 0 ? 0 : owner == me ? 1 : 2);
+            }
+            int feature = base + instanceOffset[i] + index;
+            if (features == null)
+                score += weights[feature];
+            else
+                features[count++] = feature;
+        }
+        int cells = boardSize * boardSize;
+        for (int square = 0; square < cells; square++) {
+            int type = logic.getDiscTypeAt(square);
+            if (type == SearchableLogic.SIMPLE)
+                continue;
+            int kind = (type == SearchableLogic.BOMB ? 0 : 2) + (logic.getOwnerAt(square) == me ? 0 : 1);
+            int feature = base + specialOffset + kind * cells + square;
+            if (features == null)
+                score += weights[feature];
+            else
+                features[count++] = feature;
+        }
+        Player mover = logic.getCurrentPlayer();
+        Player opponent = me == 1 ? logic.getSecondPlayer() : logic.getFirstPlayer();
+        int inventory = ((Math.min(mover.getNumber_of_bombs(), BOMB_STATES - 1) * UNFLIPPABLE_STATES
+                + Math.min(mover.getNumber_of_unflippedable(), UNFLIPPABLE_STATES - 1)) * BOMB_STATES
+                + Math.min(opponent.getNumber_of_bombs(), BOMB_STATES - 1)) * UNFLIPPABLE_STATES
+                + Math.min(opponent.getNumber_of_unflippedable(), UNFLIPPABLE_STATES - 1);
+        if (features == null)
+            return score + weights[base + inventoryOffset + inventory] + weights[base + biasOffset]
+                    + weights[base + mobilityOffset] * mobility;
+        features[count++] = base + inventoryOffset + inventory;
+        features[count++] = base + biasOffset;
+        return count;
+    }
+
+    // Return the game phase of a position, from 0 to PHASES - 1 by the number of discs on the board
+    private int phase(SearchableLogic logic) {
+        int discs = logic.countDiscs(true) + logic.countDiscs(false);
+        return Math.min(PHASES - 1, discs * PHASES / (boardSize * boardSize + 1));
+    }
+
+    // Return the size of the board the weights are for
+    public int getBoardSize() {
+        return boardSize;
+    }
+
+    // Return the number of weights
+    int getWeightCount() {
+        return weights.length;
+    }
+}
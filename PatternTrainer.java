@@ -0,0 +1,232 @@
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Fits the weights of a PatternEvaluator to the positions of a SelfPlayGenerator file: a least-squares
+ * fit of the final disc difference of every position's game, by stochastic gradient descent. Every epoch
+ * goes over the training positions in a new random order, with the step size divided by the epoch's
+ * number so the weights settle; the last part of the file is held out, and its
+ * error is reported after every epoch, next to the error of always guessing 0.
+ *
+ * The positions are read through a MappedByteBuffer, and every position is loaded into an engine to
+ * compute its features with the same code the evaluator uses in the search, so a file of any size trains
+ * in constant memory.
+ *
+ * Usage: java PatternTrainer [--epochs N] [--rate R] [--validation F] [--seed N] [--out weights.bin] selfplay.npy
+ * The AIs then use the weights when started with -Dreversi.weights=weights.bin.
+ */
+public class PatternTrainer {
+
+    // The mobility feature is the number of valid moves times this, to keep its gradient steps in scale
+    private static final double MOBILITY_SCALE = 0.1;
+    // Weights are stored in hundredths of a disc
+    private static final double WEIGHT_UNITS = 100;
+
+    private final MappedByteBuffer data;
+    private final int boardSize;
+    private final int recordBytes;
+    private final int headerBytes;
+    private final int records;
+    private final PatternEvaluator layout;
+    private final double[] weights;
+    // The engine positions are loaded into, and its buffers
+    private final SearchableLogic logic;
+    private final int[] owners;
+    private final int[] discTypes;
+    private final int[] valid;
+    private final int[] features;
+
+    /**
+     * Maps a training data file.
+     *
+     * @param file A .npy file written by SelfPlayGenerator.
+     * @throws IOException If the file cannot be read or was not written by SelfPlayGenerator.
+     */
+    public PatternTrainer(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        data.order(ByteOrder.LITTLE_ENDIAN);
+        if (data.limit() < 10 || data.get(0) != (byte) 0x93 || data.get(6) != 1)
+            throw new IOException(file + " is not a .npy file of version 1");
+        headerBytes = 10 + (data.getShort(8) & 0xFFFF);
+        byte[] header = new byte[headerBytes - 10];
+        data.get(10, header);
+        String dictionary = new String(header, StandardCharsets.US_ASCII);
+        Matcher board = Pattern.compile("\\('board', 'u1', \\((\\d+),\\)\\)").matcher(dictionary);
+        Matcher shape = Pattern.compile("'shape': \\((\\d+),\\)").matcher(dictionary);
+        if (!board.find() || !shape.find())
+            throw new IOException(file + " was not written by SelfPlayGenerator");
+        int cells = Integer.parseInt(board.group(1));
+        boardSize = (int) Math.round(Math.sqrt(cells));
+        recordBytes = SelfPlayGenerator.recordBytes(boardSize);
+        records = Integer.parseInt(shape.group(1));
+        if (boardSize * boardSize != cells || headerBytes + (long) records * recordBytes != data.limit())
+            throw new IOException(file + " does not hold " + records + " positions of a square board");
+
+        layout = new PatternEvaluator(boardSize);
+        weights = new double[layout.getWeightCount()];
+        logic = boardSize == 8 ? new BitboardGameLogic() : new GameLogic(boardSize);
+        logic.setLogger(NoOpGameLogger.INSTANCE);
+        logic.setPlayers(new HumanPlayer(true), new HumanPlayer(false));
+        owners = new int[cells];
+        discTypes = new int[cells];
+        valid = new int[cells];
+        features = new int[4 * cells];
+    }
+
+    /**
+     * Loads a position of the file into the engine.
+     *
+     * @param record The index of the position.
+     * @return The final disc difference of its game, for the player to move.
+     */
+    private int load(int record) {
+        int offset = headerBytes + record * recordBytes;
+        int cells = boardSize * boardSize;
+        boolean firstPlayerTurn = data.get(offset + cells) == 1;
+        int mover = firstPlayerTurn ? 1 : 2;
+        for (int square = 0; square < cells; square++) {
+            int value = data.get(offset + square);
+            owners[square] = (value & 3) == 0 ? 0 : (value & 3) == 1 ? mover : 3 - mover;
+            discTypes[square] = (value >> 2) == 1 ? SearchableLogic.BOMB
+                    : (value >> 2) == 2 ? SearchableLogic.UNFLIPPABLE : SearchableLogic.SIMPLE;
+        }
+        Player moving = firstPlayerTurn ? logic.getFirstPlayer() : logic.getSecondPlayer();
+        Player waiting = firstPlayerTurn ? logic.getSecondPlayer() : logic.getFirstPlayer();
+        moving.set_bombs_and_unflippedable(data.get(offset + cells + 1), data.get(offset + cells + 3));
+        waiting.set_bombs_and_unflippedable(data.get(offset + cells + 2), data.get(offset + cells + 4));
+        logic.loadPosition(owners, discTypes, firstPlayerTurn);
+        return data.getShort(offset + cells + 8);
+    }
+
+    /**
+     * Runs one pass over a range of positions: measures the error of the current weights and,
+     * when training, moves the weights of every position's features towards its result.
+     *
+     * @param order The positions, in the order to visit them.
+     * @param count The number of positions.
+     * @param rate The step size, or 0 to only measure.
+     * @return The root mean square error, in discs, before each position's step.
+     */
+    private double pass(int[] order, int count, double rate) {
+        double squares = 0;
+        for (int k = 0; k < count; k++) {
+            int target = load(order[k]);
+            int n = layout.features(logic, features);
+            int mobilityFeature = layout.mobilityFeature(logic);
+            double mobility = logic.validMoves(valid) * MOBILITY_SCALE;
+            double prediction = weights[mobilityFeature] * mobility;
+            for (int i = 0; i < n; i++) {
+                prediction += weights[features[i]];
+            }
+            double error = target - prediction;
+            squares += error * error;
+            if (rate == 0)
+                continue;
+            // The step is shared by the features, so the prediction moves by about rate * error
+            double step = rate * error / (n + mobility * mobility);
+            for (int i = 0; i < n; i++) {
+                weights[features[i]] += step;
+            }
+            weights[mobilityFeature] += step * mobility;
+        }
+        return count == 0 ? 0 : Math.sqrt(squares / count);
+    }
+
+    /**
+     * Fits the weights, printing the errors after every epoch.
+     *
+     * @param epochs The number of passes over the training positions.
+     * @param rate The step size of the first epoch, between 0 and 1: the part of a position's error
+     *             corrected by its step.
+     * @param validation The part of the positions (the last ones of the file) held out to measure the error.
+     * @param seed The seed of the order of the positions.
+     */
+    public void train(int epochs, double rate, double validation, long seed) {
+        int held = (int) Math.round(records * validation);
+        int training = records - held;
+        int[] order = new int[training];
+        for (int k = 0; k < training; k++) {
+            order[k] = k;
+        }
+        int[] heldOut = new int[held];
+        for (int k = 0; k < held; k++) {
+            heldOut[k] = training + k;
+        }
+        double[] saved = weights.clone();
+        System.out.printf("%d training and %d validation positions; guessing 0 has a validation error of %.2f discs%n",
+                training, held, pass(heldOut, held, 0));
+        System.arraycopy(saved, 0, weights, 0, weights.length);
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int epoch = 1; epoch <= epochs; epoch++) {
+            for (int k = training - 1; k > 0; k--) {
+                int j = random.nextInt(k + 1);
+                int swap = order[k];
+                order[k] = order[j];
+                order[j] = swap;
+            }
+            long start = System.nanoTime();
+            double trainingError = pass(order, training, rate / epoch);
+            System.out.printf("epoch %2d: training error %.2f, validation error %.2f discs (%.1f s)%n", epoch,
+                    trainingError, pass(heldOut, held, 0), (System.nanoTime() - start) / 1e9);
+        }
+    }
+
+    /**
+     * Returns an evaluator with the fitted weights, rounded to hundredths of a disc.
+     *
+     * @return The evaluator.
+     */
+    public PatternEvaluator evaluator() {
+        int[] rounded = new int[weights.length];
+        for (int i = 0; i < weights.length; i++) {
+            rounded[i] = (int) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(weights[i] * WEIGHT_UNITS)));
+        }
+        // The evaluator multiplies the mobility weight by the plain number of valid moves
+        for (int phase = 0; phase < PatternEvaluator.PHASES; phase++) {
+            int index = layout.mobilityFeature(phase);
+            rounded[index] = (int) Math.round(weights[index] * MOBILITY_SCALE * WEIGHT_UNITS);
+        }
+        return new PatternEvaluator(boardSize, rounded);
+    }
+
+    /**
+     * Trains the weights from the command line and writes them; see the class comment for the options.
+     *
+     * @param args The command-line arguments.
+     * @throws IOException If a file cannot be read or written.
+     */
+    public static void main(String[] args) throws IOException {
+        int epochs = 10;
+        double rate = 0.1;
+        double validation = 0.1;
+        long seed = 1;
+        Path out = Path.of("weights.bin");
+        Path file = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--epochs": epochs = Integer.parseInt(args[++i]); break;
+                case "--rate": rate = Double.parseDouble(args[++i]); break;
+                case "--validation": validation = Double.parseDouble(args[++i]); break;
+                case "--seed": seed = Long.parseLong(args[++i]); break;
+                case "--out": out = Path.of(args[++i]); break;
+                default: file = Path.of(args[i]);
+            }
+        }
+        if (file == null)
+            throw new IllegalArgumentException("Usage: java PatternTrainer [options] selfplay.npy");
+        PatternTrainer trainer = new PatternTrainer(file);
+        trainer.train(epochs, rate, validation, seed);
+        trainer.evaluator().write(out);
+        System.out.println("Weights written to " + out);
+    }
+}
@@ -0,0 +1,326 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Perft ("performance test"): walks the complete game tree from a position to a fixed depth and
+ * counts what it finds. Two move generators that agree on every count, on many positions and depths,
+ * generate exactly the same moves; the time taken measures the speed of the move generator and of
+ * makeMove/unmakeMove. Moves branch over the disc type too: a valid square is one move with a simple disc,
+ * one more with a bomb if the player has one left, and one more with an unflippable disc if the player has one.
+ *
+ * For each depth the counts are: the leaves (positions exactly depth moves away), the game ends
+ * (positions before that depth where the player to move has no valid move, so the line stops there),
+ * and the passes. These rules have no passing: a player without a valid move ends the game,
+ * so passes are always 0 and are reported only to make that explicit.
+ *
+ * Positions are read from a text file. Every position is one row of characters per board row:
+ * '.' for an empty square, 'X', 'B' and 'U' for a simple disc, a bomb and an unflippable disc of player 1,
+ * and 'x', 'b' and 'u' for those of player 2. The next line holds the player to move (1 or 2)
+ * and the special discs left: bombs and unflippable discs of player 1, then of player 2.
+ * Lines "perft depth leaves" after a position give expected leaf counts, which are then checked.
+ * Lines starting with '#' are comments (the last one before a position names it), and blank lines separate positions.
+ *
+ * Usage: java Perft [--depth N] [--file positions.txt] [--size N] [--engine both|gamelogic|bitboard] [--divide]
+ * Without a file, the start position of an N x N board (8 by default) is used. Boards other than 8x8
+ * are only played by GameLogic.
+ */
+public class Perft {
+
+    // Names of the disc types, indexed by type code, for the divide output
+    private static final String[] TYPE_NAMES = {"simple", "bomb", "unflippable"};
+
+    /**
+     * A position read from a file, with its expected leaf counts.
+     */
+    static final class TestPosition {
+        final String name;
+        final int boardSize;
+        final int[] owners;
+        final int[] discTypes;
+        final boolean firstPlayerTurn;
+        // Special discs left: bombs and unflippable discs of player 1, then of player 2
+        final int[] inventory;
+        // Expected leaf counts by depth; -1 where none is given
+        final long[] expected = new long[AlphaBetaSearch.MAX_DEPTH + 1];
+
+        TestPosition(String name, int boardSize, int[] owners, int[] discTypes, boolean firstPlayerTurn, int[] inventory) {
+            this.name = name;
+            this.boardSize = boardSize;
+            this.owners = owners;
+            this.discTypes = discTypes;
+            this.firstPlayerTurn = firstPlayerTurn;
+            this.inventory = inventory;
+            Arrays.fill(expected, -1);
+        }
+
+        /**
+         * Loads the position into an engine, with two new human players.
+         *
+         * @param logic The engine.
+         */
+        void loadInto(SearchableLogic logic) {
+            Player player1 = new HumanPlayer(true);
+            Player player2 = new HumanPlayer(false);
+            player1.set_bombs_and_unflippedable(inventory[0], inventory[1]);
+            player2.set_bombs_and_unflippedable(inventory[2], inventory[3]);
+            logic.setPlayers(player1, player2);
+            logic.loadPosition(owners, discTypes, firstPlayerTurn);
+        }
+    }
+
+    // The engine walked, and a move buffer per ply
+    private final SearchableLogic logic;
+    private final int[][] buffers;
+    // Counts of the last run
+    private long leaves;
+    private long gameEnds;
+
+    /**
+     * Constructs a perft walker over an engine.
+     *
+     * @param logic The engine, holding the position to walk from.
+     */
+    public Perft(SearchableLogic logic) {
+        this.logic = logic;
+        this.buffers = new int[AlphaBetaSearch.MAX_DEPTH + 1][logic.getBoardSize() * logic.getBoardSize()];
+    }
+
+    /**
+     * Walks the tree to the given depth and counts the leaves and game ends.
+     *
+     * @param depth The depth, in plies (at least 1).
+     * @return The number of leaves.
+     */
+    public long run(int depth) {
+        leaves = 0;
+        gameEnds = 0;
+        walk(depth, 0);
+        return leaves;
+    }
+
+    /**
+     * Counts the subtree of the current position.
+     *
+     * @param depth The remaining depth.
+     * @param ply The distance from the root.
+     */
+    private void walk(int depth, int ply) {
+        int[] valid = buffers[ply];
+        int count = logic.validMoves(valid);
+        if (count == 0) {
+            gameEnds++;
+            return;
+        }
+        Player player = logic.getCurrentPlayer();
+        int types = 1 + (player.getNumber_of_bombs() > 0 ? 1 : 0) + (player.getNumber_of_unflippedable() > 0 ? 1 : 0);
+        if (depth == 1) {
+            leaves += (long) count * types;  // Every child is a leaf: no need to make the moves
+            return;
+        }
+        for (int k = 0; k < count; k++) {
+            for (int type = SearchableLogic.SIMPLE; type <= SearchableLogic.UNFLIPPABLE; type++) {
+                if (logic.makeMove(valid[k], type)) {
+                    walk(depth - 1, ply + 1);
+                    logic.unmakeMove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Prints the leaf count under every move of the root, to find the move where two engines disagree.
+     *
+     * @param depth The depth, in plies (at least 2).
+     */
+    public void divide(int depth) {
+        int[] valid = new int[logic.getBoardSize() * logic.getBoardSize()];
+        int count = logic.validMoves(valid);
+        int n = logic.getBoardSize();
+        for (int k = 0; k < count; k++) {
+            for (int type = SearchableLogic.SIMPLE; type <= SearchableLogic.UNFLIPPABLE; type++) {
+                if (logic.makeMove(valid[k], type)) {
+                    long nodes = new Perft(logic).run(depth - 1);
+                    logic.unmakeMove();
+                    System.out.printf("  (%d,%d) %s: %d%n", valid[k] / n, valid[k] % n, TYPE_NAMES[type], nodes);
+                }
+            }
+        }
+    }
+
+    // Return the number of leaves found by the last run
+    public long getLeaves() {
+        return leaves;
+    }
+
+    // Return the number of game ends found by the last run
+    public long getGameEnds() {
+        return gameEnds;
+    }
+
+    /**
+     * Reads positions from a text file in the format described in the class comment.
+     *
+     * @param file The file.
+     * @return The positions, in file order.
+     * @throws IOException If the file cannot be read.
+     */
+    static List<TestPosition> readPositions(Path file) throws IOException {
+        List<TestPosition> positions = new ArrayList<>();
+        List<String> rows = new ArrayList<>();
+        TestPosition last = null;
+        String comment = null;
+        int lineNumber = 0;
+        for (String raw : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            lineNumber++;
+            String line = raw.trim();
+            if (line.startsWith("#"))
+                comment = line.substring(1).trim();  // The comment just before a position names it
+            if (line.isEmpty() || line.startsWith("#"))
+                continue;
+            if (line.startsWith("perft ")) {
+                if (last == null)
+                    throw new IllegalArgumentException(file + ":" + lineNumber + ": perft line before any position");
+                String[] fields = line.split("\\s+");
+                last.expected[Integer.parseInt(fields[1])] = Long.parseLong(fields[2]);
+            } else if (Character.isDigit(line.charAt(0))) {
+                last = parse(comment != null ? comment : file.getFileName() + ":" + lineNumber, rows, line);
+                comment = null;
+                positions.add(last);
+                rows.clear();
+            } else {
+                rows.add(line);
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * Builds a position from its board rows and its side-to-move line.
+     *
+     * @param name The name of the position (where it was read).
+     * @param rows The board rows.
+     * @param state The line with the player to move and the special discs left.
+     * @return The position.
+     */
+    private static TestPosition parse(String name, List<String> rows, String state) {
+        int n = rows.size();
+        int[] owners = new int[n * n];
+        int[] discTypes = new int[n * n];
+        for (int i = 0; i < n; i++) {
+            String row = rows.get(i);
+            if (row.length() != n)
+                throw new IllegalArgumentException(name + ": row " + i + " has " + row.length() + " squares, expected " + n);
+            for (int j = 0; j < n; j++) {
+                char c = row.charAt(j);
+                int square = i * n + j;
+                if (c == '.')
+                    continue;
+                owners[square] = Character.isUpperCase(c) ? 1 : 2;
+                switch (Character.toUpperCase(c)) {
+                    case 'X': discTypes[square] = SearchableLogic.SIMPLE; break;
+                    case 'B': discTypes[square] = SearchableLogic.BOMB; break;
+                    case 'U': discTypes[square] = SearchableLogic.UNFLIPPABLE; break;
+                    default: throw new IllegalArgumentException(name + ": unknown square '" + c + "'");
+                }
+            }
+        }
+        String[] fields = state.split("\\s+");
+        int[] inventory = new int[4];
+        for (int k = 0; k < 4; k++) {
+            inventory[k] = Integer.parseInt(fields[k + 1]);
+        }
+        return new TestPosition(name, n, owners, discTypes, fields[0].equals("1"), inventory);
+    }
+
+    // Return a new engine of the given kind ("gamelogic" or "bitboard") and board size with no logging
+    private static SearchableLogic newEngine(String kind, int boardSize) {
+        SearchableLogic logic = kind.equals("bitboard") ? new BitboardGameLogic() : new GameLogic(boardSize);
+        logic.setLogger(NoOpGameLogger.INSTANCE);
+        return logic;
+    }
+
+    /**
+     * Runs perft from the command line; see the class comment for the options.
+     * Exits with code 1 if the engines disagree or a count differs from the file.
+     *
+     * @param args The command-line arguments.
+     * @throws IOException If the positions file cannot be read.
+     */
+    public static void main(String[] args) throws IOException {
+        int maxDepth = 5;
+        Path file = null;
+        String engine = "both";
+        boolean divide = false;
+        int size = 8;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--depth": maxDepth = Integer.parseInt(args[++i]); break;
+                case "--file": file = Path.of(args[++i]); break;
+                case "--size": size = Integer.parseInt(args[++i]); break;
+                case "--engine": engine = args[++i]; break;
+                case "--divide": divide = true; break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        List<TestPosition> positions = new ArrayList<>();
+        if (file != null) {
+            positions.addAll(readPositions(file));
+        } else {
+            SearchableLogic start = newEngine("gamelogic", size);
+            start.setPlayers(new HumanPlayer(true), new HumanPlayer(false));
+            start.reset();
+            int squares = start.getBoardSize() * start.getBoardSize();
+            int[] owners = new int[squares];
+            int[] discTypes = new int[squares];
+            for (int square = 0; square < squares; square++) {
+                owners[square] = start.getOwnerAt(square);
+                discTypes[square] = start.getDiscTypeAt(square);
+            }
+            positions.add(new TestPosition("start", start.getBoardSize(), owners, discTypes, true, new int[]{3, 2, 3, 2}));
+        }
+        String[] engines = engine.equals("both") ? new String[]{"gamelogic", "bitboard"} : new String[]{engine};
+
+        boolean passed = true;
+        for (TestPosition position : positions) {
+            System.out.println(position.name);
+            for (int depth = 1; depth <= maxDepth; depth++) {
+                long[] counts = null;
+                for (String kind : engines) {
+                    if (kind.equals("bitboard") && position.boardSize != 8)
+                        continue;  // The bitboard engine only plays 8x8
+                    SearchableLogic logic = newEngine(kind, position.boardSize);
+                    position.loadInto(logic);
+                    Perft perft = new Perft(logic);
+                    long start = System.nanoTime();
+                    perft.run(depth);
+                    long elapsed = Math.max(1, System.nanoTime() - start);
+                    System.out.printf("  %-9s depth %2d: %,15d leaves %,12d game ends %d passes %8.0f ms %,13.0f leaves/s%n",
+                            kind, depth, perft.getLeaves(), perft.getGameEnds(), 0, elapsed / 1e6, perft.getLeaves() * 1e9 / elapsed);
+                    long[] these = {perft.getLeaves(), perft.getGameEnds()};
+                    if (counts != null && (counts[0] != these[0] || counts[1] != these[1])) {
+                        System.out.println("  MISMATCH between engines at depth " + depth);
+                        passed = false;
+                    }
+                    counts = these;
+                    if (position.expected[depth] >= 0 && position.expected[depth] != these[0]) {
+                        System.out.println("  MISMATCH: expected " + position.expected[depth] + " leaves");
+                        passed = false;
+                    }
+                }
+            }
+            if (divide && maxDepth >= 2) {
+                SearchableLogic logic = newEngine(engines[0], position.boardSize);
+                position.loadInto(logic);
+                System.out.println("  divide at depth " + maxDepth + " (" + engines[0] + "):");
+                new Perft(logic).divide(maxDepth);
+            }
+        }
+        if (!passed)
+            System.exit(1);
+    }
+}
@@ -59,7 +59,26 @@ public abstract class Player {
         this.number_of_bombs = initial_number_of_bombs;
         this.number_of_unflippedable = initial_number_of_unflippedable;
     }
+    public void set_bombs_and_unflippedable(int bombs, int unflippedable) {
+        this.number_of_bombs = bombs;
+        this.number_of_unflippedable = unflippedable;
+    }
     public void increase_unflippedable() {number_of_unflippedable++;}
     public void increase_bomb() {number_of_bombs++;}
 
+    /**
+     * Creates a stand-in for a player, with the same side, wins and special discs left.
+     * Engine copies use it, so a search on a copy never changes the inventories of the real player.
+     *
+     * @param player The player to copy.
+     * @return A new HumanPlayer with the same state.
+     */
+    static Player copyOf(Player player) {
+        Player copy = new HumanPlayer(player.isPlayerOne);
+        copy.wins = player.wins;
+        copy.number_of_bombs = player.number_of_bombs;
+        copy.number_of_unflippedable = player.number_of_unflippedable;
+        return copy;
+    }
+
 }
@@ -13,6 +13,19 @@ public class Position {
     // The column coordinate of the position
     private final int col;
 
+    // The largest board whose positions are kept in the shared cache
+    private static final int CACHE_SIZE = 32;
+
+    // Shared, preallocated positions for every square of the board, indexed by row * CACHE_SIZE + col
+    private static final Position[] CACHE = new Position[CACHE_SIZE * CACHE_SIZE];
+    static {
+        for (int i = 0; i < CACHE_SIZE; i++) {
+            for (int j = 0; j < CACHE_SIZE; j++) {
+                CACHE[i * CACHE_SIZE + j] = new Position(i, j);
+            }
+        }
+    }
+
     /**
      * Constructs a new Position object with the specified row and column.
      *
@@ -24,6 +37,22 @@ public class Position {
         this.col = col;  // Set the column value
     }
 
+    /**
+     * Returns the shared Position object for the given row and column.
+     * Positions on the board come from a preallocated table, so calling this in a loop creates no garbage
+     * and two positions of the same square are the same object. Coordinates outside the table
+     * (such as the direction offsets used by the game logic) get a new object.
+     *
+     * @param row The row coordinate of the position.
+     * @param col The column coordinate of the position.
+     * @return The Position for the given row and column.
+     */
+    public static Position of(int row, int col) {
+        if (row >= 0 && row < CACHE_SIZE && col >= 0 && col < CACHE_SIZE)
+            return CACHE[row * CACHE_SIZE + col];
+        return new Position(row, col);
+    }
+
     /**
      * Gets the row coordinate of this position.
      *
@@ -1,14 +1,16 @@
-import java.util.List;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 /**
  * A class representing an AI player that makes random moves in the game.
  * This AI randomly selects a valid move from the available options and
  * randomly chooses the type of disc to play (Simple, Bomb, or Unflippable)
  * based on the resources available to the current player.
+ * Each thread draws from its own generator (ThreadLocalRandom), so RandomAI players in
+ * games running in parallel do not contend for one shared Random.
  */
 public class RandomAI extends AIPlayer {
 
-    private static Random random=new Random();
+    // Reusable buffer for the encoded valid moves, so choosing a move does not allocate a list
+    private int[] moves = new int[0];
 
     /**
      * Constructor for RandomAI.
@@ -30,67 +32,70 @@ public class RandomAI extends AIPlayer {
      */
     @Override
     public Move makeMove(PlayableLogic gameStatus) {
-        if (gameStatus instanceof GameLogic) {
-            GameLogic gameLogic = (GameLogic) gameStatus;
-            List<Position> possibleOptions = gameLogic.ValidMoves();
-            Player player = gameLogic.getCurrentPlayer();
+        long start = sampleMoveTime();
+        SearchableLogic gameLogic = (SearchableLogic) gameStatus;
+        int boardSize = gameLogic.getBoardSize();
+        if (moves.length < boardSize * boardSize)
+            moves = new int[boardSize * boardSize];
+        int count = gameLogic.validMoves(moves);
+        Player player = gameLogic.getCurrentPlayer();
 
-            if (possibleOptions.isEmpty()) {
-                return null;  // No valid moves available, return null or some default behavior.
-            }
-
-            boolean hasBombs = player.getNumber_of_bombs() > 0;
-            boolean hasUnflip = player.getNumber_of_unflippedable() > 0;
+        if (count == 0) {
+            recordMoveTime(start);
+            return null;  // No valid moves available, return null or some default behavior.
+        }
 
-            // Randomly select a position from the available options.
-            int location = random.nextInt(possibleOptions.size());
-            Position selectedPosition = possibleOptions.get(location);
+        boolean hasBombs = player.getNumber_of_bombs() > 0;
+        boolean hasUnflip = player.getNumber_of_unflippedable() > 0;
 
-            // Determine the type of disc to play based on available resources.
-            Disc disc = createRandomDisc(gameLogic, hasBombs, hasUnflip);
+        // Randomly select a position from the available options.
+        int square = moves[ThreadLocalRandom.current().nextInt(count)];
+        Position selectedPosition = Position.of(square / boardSize, square % boardSize);
 
-            // Create and return the move.
-            return new Move(disc, selectedPosition, null);
-        }
+        // Determine the type of disc to play based on available resources.
+        Disc disc = createRandomDisc(player, hasBombs, hasUnflip);
 
-        return null;
+        // Create and return the move.
+        Move move = new Move(disc, selectedPosition, null);
+        recordMoveTime(start);
+        return move;
     }
     /**
      * Helper method to create a random disc based on the current player's resources.
      * Randomly selects between SimpleDisc, BombDisc, or UnflippableDisc based on the
      * player's available resources (bombs and unflippable discs).
      *
-     * @param gameLogic The current game logic, providing the current player.
+     * @param player The current player, who will own the disc.
      * @param hasBombs A boolean indicating if the player has bombs available.
      * @param hasUnflip A boolean indicating if the player has unflippable discs available.
      * @return A randomly chosen disc (SimpleDisc, BombDisc, or UnflippableDisc).
      */
     // Helper method to create a random disc type based on player resources.
-    private static Disc createRandomDisc(GameLogic gameLogic, boolean hasBombs, boolean hasUnflip) {
+    private static Disc createRandomDisc(Player player, boolean hasBombs, boolean hasUnflip) {
         Disc disc;
 
         if (!(hasBombs || hasUnflip)) {
             // Only SimpleDisc is available when no bombs or unflippable discs are available.
-            disc = new SimpleDisc(gameLogic.getCurrentPlayer());
+            disc = new SimpleDisc(player);
         } else {
             int kind;
             if (hasBombs && hasUnflip) {
                 // Randomly choose between Simple, Bomb, or Unflippable disc.
-                kind = random.nextInt(3);
+                kind = ThreadLocalRandom.current().nextInt(3);
             } else {
                 // Choose between Simple and one of the available discs.
-                kind = random.nextInt(2);
+                kind = ThreadLocalRandom.current().nextInt(2);
             }
 
             switch (kind) {
                 case 0:
-                    disc = new SimpleDisc(gameLogic.getCurrentPlayer());
+                    disc = new SimpleDisc(player);
                     break;
                 case 1:
-                    disc = hasBombs ? new BombDisc(gameLogic.getCurrentPlayer()) : new UnflippableDisc(gameLogic.getCurrentPlayer());
+                    disc = hasBombs ? new BombDisc(player) : new UnflippableDisc(player);
                     break;
                 default:
-                    disc = new BombDisc(gameLogic.getCurrentPlayer());
+                    disc = new BombDisc(player);
                     break;
             }
         }
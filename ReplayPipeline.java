@@ -0,0 +1,240 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Replays archived games (files written by GameRecordWriter) and gathers ReplayStatistics over them.
+ *
+ * A file is read through MappedByteBuffers of up to REGION_BYTES each, so the games are never copied
+ * onto the heap. For every region, a quick pass finds where each game starts (only the lengths are read),
+ * then the games are split into one contiguous slice per worker thread. A worker replays its games on its
+ * own engines, which log nothing, with SearchableLogic.playMoves (one call per game, rather than
+ * a locate_disc per move), checks the recorded final disc counts, and adds every game to its own
+ * statistics; the statistics of all the workers are merged at the end. The result does not depend on
+ * the number of threads.
+ *
+ * Usage: java ReplayPipeline [--threads N] games.bin...
+ */
+public class ReplayPipeline {
+
+    // Largest part of a file mapped at once
+    private static final long REGION_BYTES = 1L << 30;
+    // Bytes of a record before the first player name: board size, seed and the two disc counts
+    private static final int FIXED_HEADER_BYTES = 1 + 8 + 2 + 2;
+
+    private final int threads;
+
+    /**
+     * Constructs a pipeline.
+     *
+     * @param threads The number of worker threads.
+     */
+    public ReplayPipeline(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * Replays all the games of the given files.
+     *
+     * @param files The game record files.
+     * @return The statistics of all the games.
+     * @throws IOException If a file cannot be read or is not a game record file.
+     * @throws InterruptedException If the thread is interrupted while waiting for the workers.
+     */
+    public ReplayStatistics replay(List<Path> files) throws IOException, InterruptedException {
+        ReplayStatistics total = new ReplayStatistics();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (Path file : files) {
+                replayFile(file, executor, total);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return total;
+    }
+
+    /**
+     * Replays the games of one file, region by region.
+     *
+     * @param file The file.
+     * @param executor The workers.
+     * @param total The statistics to add the games to.
+     * @throws IOException If the file cannot be read or is not a game record file.
+     * @throws InterruptedException If the thread is interrupted while waiting for the workers.
+     */
+    private void replayFile(Path file, ExecutorService executor, ReplayStatistics total)
+            throws IOException, InterruptedException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, 8));
+            if (size < 8 || header.getInt(0) != GameRecordWriter.MAGIC || header.getInt(4) != GameRecordWriter.VERSION)
+                throw new IOException(file + " is not a game record file of version " + GameRecordWriter.VERSION);
+            int[] offsets = new int[1024];
+            long position = 8;
+            while (position < size) {
+                MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(REGION_BYTES, size - position));
+                // Find the games that lie completely in this region; the next region starts after the last one
+                int count = 0, offset = 0;
+                for (int length = recordLength(region, 0); length > 0; length = recordLength(region, offset)) {
+                    if (count == offsets.length)
+                        offsets = Arrays.copyOf(offsets, 2 * count);
+                    offsets[count++] = offset;
+                    offset += length;
+                }
+                if (count == 0)
+                    throw new IOException(file + " ends in the middle of a game at byte " + position);
+                replayRegion(region, offsets, count, executor, total);
+                position += offset;
+            }
+        }
+    }
+
+    /**
+     * Replays the games of a region, in one slice per worker.
+     *
+     * @param region The mapped region.
+     * @param offsets The offsets of the games in the region.
+     * @param count The number of games.
+     * @param executor The workers.
+     * @param total The statistics to add the games to.
+     * @throws InterruptedException If the thread is interrupted while waiting for the workers.
+     */
+    private void replayRegion(ByteBuffer region, int[] offsets, int count, ExecutorService executor,
+                              ReplayStatistics total) throws InterruptedException {
+        List<Future<ReplayStatistics>> slices = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int from = (int) ((long) count * t / threads);
+            int to = (int) ((long) count * (t + 1) / threads);
+            if (from < to)
+                slices.add(executor.submit(() -> replaySlice(region, offsets, from, to)));
+        }
+        // The statistics are only merged here, on this thread
+        for (Future<ReplayStatistics> slice : slices) {
+            try {
+                total.merge(slice.get());
+            } catch (ExecutionException e) {
+                throw new RuntimeException("Replay failed", e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Replays a slice of the games of a region on one worker. The buffer is only read with absolute
+     * gets, which leave its position alone, so all the workers share it.
+     *
+     * @param region The mapped region.
+     * @param offsets The offsets of the games in the region.
+     * @param from The index of the first game of the slice.
+     * @param to The index after the last game of the slice.
+     * @return The statistics of the slice.
+     */
+    private static ReplayStatistics replaySlice(ByteBuffer region, int[] offsets, int from, int to) {
+        ReplayStatistics statistics = new ReplayStatistics();
+        // One engine per board size, reused for every game of that size
+        SearchableLogic[] engines = new SearchableLogic[GameLogic.MAX_BOARD_SIZE + 1];
+        int[] moves = new int[GameLogic.MAX_BOARD_SIZE * GameLogic.MAX_BOARD_SIZE];
+        int[] flips = new int[moves.length];
+        for (int g = from; g < to; g++) {
+            int offset = offsets[g];
+            int boardSize = region.get(offset) & 0xFF;
+            int firstDiscs = region.getShort(offset + 9) & 0xFFFF;
+            int secondDiscs = region.getShort(offset + 11) & 0xFFFF;
+            int at = offset + FIXED_HEADER_BYTES;
+            String firstPlayer = readName(region, at);
+            at += 1 + (region.get(at) & 0xFF);
+            String secondPlayer = readName(region, at);
+            at += 1 + (region.get(at) & 0xFF);
+            int moveCount = region.getShort(at) & 0xFFFF;
+            at += 2;
+            boolean wide = GameRecord.bytesPerMove(boardSize) == 2;
+            for (int k = 0; k < moveCount; k++) {
+                moves[k] = wide ? region.getShort(at + 2 * k) & 0xFFFF : region.get(at + k) & 0xFF;
+            }
+
+            SearchableLogic logic = engines[boardSize];
+            if (logic == null) {
+                logic = boardSize == 8 ? new BitboardGameLogic() : new GameLogic(boardSize);
+                logic.setLogger(NoOpGameLogger.INSTANCE);
+                logic.setPlayers(new HumanPlayer(true), new HumanPlayer(false));
+                engines[boardSize] = logic;
+            }
+            logic.reset();
+            int played = logic.playMoves(moves, moveCount, flips);
+            if (played < moveCount)
+                throw new IllegalStateException("Move " + played + " of the game at offset " + offset + " is not valid");
+            if (logic.countDiscs(true) != firstDiscs || logic.countDiscs(false) != secondDiscs)
+                throw new IllegalStateException("The game at offset " + offset + " does not end with its recorded disc counts");
+            statistics.addGame(firstPlayer, secondPlayer, firstDiscs, secondDiscs, moves, flips, moveCount);
+        }
+        return statistics;
+    }
+
+    /**
+     * Returns the length of the record at an offset of a region, reading only its length fields.
+     *
+     * @param region The mapped region.
+     * @param offset The offset of the record.
+     * @return The length in bytes, or 0 if the record does not lie completely in the region.
+     */
+    private static int recordLength(ByteBuffer region, int offset) {
+        int limit = region.limit();
+        int at = offset + FIXED_HEADER_BYTES;
+        if (at >= limit)
+            return 0;
+        at += 1 + (region.get(at) & 0xFF);
+        if (at >= limit)
+            return 0;
+        at += 1 + (region.get(at) & 0xFF);
+        if (at + 2 > limit)
+            return 0;
+        int boardSize = region.get(offset) & 0xFF;
+        at += 2 + (region.getShort(at) & 0xFFFF) * GameRecord.bytesPerMove(boardSize);
+        return at > limit ? 0 : at - offset;
+    }
+
+    // Read a player name: a length byte and that many bytes of UTF-8
+    private static String readName(ByteBuffer region, int at) {
+        byte[] bytes = new byte[region.get(at) & 0xFF];
+        region.get(at + 1, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Replays record files from the command line and prints the statistics; see the class comment.
+     *
+     * @param args The command-line arguments.
+     * @throws IOException If a file cannot be read.
+     * @throws InterruptedException If the thread is interrupted while waiting for the workers.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--threads": threads = Integer.parseInt(args[++i]); break;
+                default: files.add(Path.of(args[i]));
+            }
+        }
+        if (files.isEmpty())
+            throw new IllegalArgumentException("Usage: java ReplayPipeline [--threads N] games.bin...");
+        long start = System.nanoTime();
+        ReplayStatistics statistics = new ReplayPipeline(threads).replay(files);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Replayed %d games in %.2f s on %d threads: %.0f games/s%n", statistics.getGames(), seconds,
+                threads, statistics.getGames() / seconds);
+        statistics.printReport(System.out);
+    }
+}
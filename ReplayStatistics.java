@@ -0,0 +1,188 @@
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Statistics over replayed games, built one game at a time in constant memory: how many discs the moves
+ * flip (overall, per ply and as a histogram), how the bombs and unflippable discs are used, and the
+ * results of every player. Every worker of a ReplayPipeline fills its own ReplayStatistics, and the
+ * pipeline merges them at the end, so adding a game needs no locking.
+ */
+public class ReplayStatistics {
+
+    // Plies tracked one by one; a 32x32 game has at most 1020 moves
+    private static final int MAX_PLIES = 32 * 32;
+    // Flip counts of the histogram; the last bucket counts this many flips or more
+    private static final int HISTOGRAM_BUCKETS = 32;
+
+    private long games;
+    // Games won by player 1, won by player 2, and drawn
+    private final long[] results = new long[3];
+    // Moves and discs flipped, in total and per disc type (SearchableLogic.SIMPLE, BOMB, UNFLIPPABLE)
+    private long moves;
+    private long flips;
+    private int maxFlips;
+    private final long[] movesByType = new long[3];
+    private final long[] flipsByType = new long[3];
+    private final long[] plyMoves = new long[MAX_PLIES];
+    private final long[] plyFlips = new long[MAX_PLIES];
+    private final long[] histogram = new long[HISTOGRAM_BUCKETS];
+    // Special discs played by the winner and by the loser of decided games: bombs, then unflippable discs
+    private final long[] winnerSpecials = new long[2];
+    private final long[] loserSpecials = new long[2];
+    // Wins, draws and losses of every player name
+    private final Map<String, long[]> players = new TreeMap<>();
+
+    /**
+     * Adds a replayed game.
+     *
+     * @param firstPlayer The name of player 1.
+     * @param secondPlayer The name of player 2.
+     * @param firstDiscs The number of player 1's discs at the end.
+     * @param secondDiscs The number of player 2's discs at the end.
+     * @param gameMoves The encoded moves of the game (see SearchableLogic.encodeMove).
+     * @param gameFlips The number of discs every move flipped.
+     * @param count The number of moves.
+     */
+    public void addGame(String firstPlayer, String secondPlayer, int firstDiscs, int secondDiscs,
+                        int[] gameMoves, int[] gameFlips, int count) {
+        games++;
+        int winner = firstDiscs > secondDiscs ? 1 : secondDiscs > firstDiscs ? 2 : 0;
+        results[winner == 0 ? 2 : winner - 1]++;
+        addResult(firstPlayer, winner == 1 ? 0 : winner == 0 ? 1 : 2);
+        addResult(secondPlayer, winner == 2 ? 0 : winner == 0 ? 1 : 2);
+
+        moves += count;
+        for (int k = 0; k < count; k++) {
+            int type = SearchableLogic.moveType(gameMoves[k]);
+            int flipped = gameFlips[k];
+            flips += flipped;
+            maxFlips = Math.max(maxFlips, flipped);
+            movesByType[type]++;
+            flipsByType[type] += flipped;
+            if (k < MAX_PLIES) {
+                plyMoves[k]++;
+                plyFlips[k] += flipped;
+            }
+            histogram[Math.min(flipped, HISTOGRAM_BUCKETS - 1)]++;
+            // The moves alternate, player 1 first, so even plies are player 1's
+            if (type != SearchableLogic.SIMPLE && winner != 0) {
+                long[] specials = (k % 2 == 0) == (winner == 1) ? winnerSpecials : loserSpecials;
+                specials[type == SearchableLogic.BOMB ? 0 : 1]++;
+            }
+        }
+    }
+
+    // Count a result of a player: 0 for a win, 1 for a draw, 2 for a loss
+    private void addResult(String player, int result) {
+        players.computeIfAbsent(player, name -> new long[3])[result]++;
+    }
+
+    /**
+     * Adds the statistics of other games, for example those of another worker.
+     *
+     * @param other The statistics to add; they are left as they are.
+     */
+    public void merge(ReplayStatistics other) {
+        games += other.games;
+        moves += other.moves;
+        flips += other.flips;
+        maxFlips = Math.max(maxFlips, other.maxFlips);
+        add(results, other.results);
+        add(movesByType, other.movesByType);
+        add(flipsByType, other.flipsByType);
+        add(plyMoves, other.plyMoves);
+        add(plyFlips, other.plyFlips);
+        add(histogram, other.histogram);
+        add(winnerSpecials, other.winnerSpecials);
+        add(loserSpecials, other.loserSpecials);
+        for (Map.Entry<String, long[]> player : other.players.entrySet()) {
+            add(players.computeIfAbsent(player.getKey(), name -> new long[3]), player.getValue());
+        }
+    }
+
+    // Add the entries of one array to those of another
+    private static void add(long[] target, long[] source) {
+        for (int i = 0; i < source.length; i++) {
+            target[i] += source[i];
+        }
+    }
+
+    // Return the number of games added
+    public long getGames() {
+        return games;
+    }
+
+    // Return the number of moves added
+    public long getMoves() {
+        return moves;
+    }
+
+    // Return the number of discs flipped by all the moves
+    public long getFlips() {
+        return flips;
+    }
+
+    // Return the number of games won by player 1 (1), by player 2 (2), or drawn (0)
+    public long getResults(int winner) {
+        return results[winner == 0 ? 2 : winner - 1];
+    }
+
+    // Return the number of moves played with a disc type (see SearchableLogic.SIMPLE, BOMB, UNFLIPPABLE)
+    public long getMoves(int discType) {
+        return movesByType[discType];
+    }
+
+    // Return the number of discs flipped by the moves played with a disc type
+    public long getFlips(int discType) {
+        return flipsByType[discType];
+    }
+
+    /**
+     * Prints the statistics.
+     *
+     * @param out The stream to print to.
+     */
+    public void printReport(PrintStream out) {
+        out.printf("%d games, %d moves: player 1 won %.1f%%, player 2 won %.1f%%, %.1f%% drawn%n", games, moves,
+                percent(results[0], games), percent(results[1], games), percent(results[2], games));
+        out.println();
+        out.printf("Flips per move: %.2f on average, %d at most%n", ratio(flips, moves), maxFlips);
+        String[] typeNames = {"simple", "bomb", "unflippable"};
+        for (int type = 0; type < 3; type++) {
+            out.printf("  %-12s %12d moves (%5.2f%%), %6.2f flips per move%n", typeNames[type], movesByType[type],
+                    percent(movesByType[type], moves), ratio(flipsByType[type], movesByType[type]));
+        }
+        out.printf("Special discs per decided game: winner %.2f bombs, %.2f unflippable; loser %.2f bombs, %.2f unflippable%n",
+                ratio(winnerSpecials[0], games - results[2]), ratio(winnerSpecials[1], games - results[2]),
+                ratio(loserSpecials[0], games - results[2]), ratio(loserSpecials[1], games - results[2]));
+        out.println();
+        out.println("Ply    games  flips/move");
+        for (int ply = 0; ply < MAX_PLIES && plyMoves[ply] > 0; ply++) {
+            out.printf("%3d %8d %11.2f%n", ply + 1, plyMoves[ply], ratio(plyFlips[ply], plyMoves[ply]));
+        }
+        out.println();
+        out.println("Flips        moves");
+        for (int bucket = 1; bucket < HISTOGRAM_BUCKETS; bucket++) {
+            if (histogram[bucket] > 0)
+                out.printf("%5s %12d%n", bucket + (bucket == HISTOGRAM_BUCKETS - 1 ? "+" : ""), histogram[bucket]);
+        }
+        out.println();
+        out.println("Player                   W        D        L   score");
+        for (Map.Entry<String, long[]> player : players.entrySet()) {
+            long[] r = player.getValue();
+            out.printf("%-20s %8d %8d %8d %6.1f%%%n", player.getKey(), r[0], r[1], r[2],
+                    percent(2 * r[0] + r[1], 2 * (r[0] + r[1] + r[2])));
+        }
+    }
+
+    // Return a part of a whole in percent, 0 for an empty whole
+    private static double percent(long part, long whole) {
+        return whole == 0 ? 0 : 100.0 * part / whole;
+    }
+
+    // Return a quotient, 0 when dividing by 0
+    private static double ratio(long numerator, long denominator) {
+        return denominator == 0 ? 0 : (double) numerator / denominator;
+    }
+}
@@ -0,0 +1,53 @@
+/**
+ * The link between an asynchronous move request (see AIPlayer.makeMoveAsync) and the search answering it.
+ * The search reads the deadline and checks isStopped() now and then, and reports each better move it
+ * finds with offer(); the requester can stop the search at any time, and at the deadline it answers
+ * with the last move offered. Stopping is cooperative: a search that never looks at its control simply
+ * runs to its end, and its result is ignored if the request was already answered.
+ */
+public final class SearchControl {
+
+    // The System.nanoTime() value at which the search must have answered
+    private final long deadlineNanos;
+    private volatile boolean stopped;
+    // The best move offered so far (see SearchableLogic.encodeMove), or -1
+    private volatile int bestMove = -1;
+
+    /**
+     * Constructs the control of one search.
+     *
+     * @param deadlineNanos The System.nanoTime() value at which the search must have answered.
+     */
+    public SearchControl(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    // Return the System.nanoTime() value at which the search must have answered
+    public long getDeadline() {
+        return deadlineNanos;
+    }
+
+    // Check if the search should stop: it was stopped, or the deadline has passed
+    public boolean isStopped() {
+        return stopped || System.nanoTime() - deadlineNanos >= 0;
+    }
+
+    // Stop the search: isStopped() returns true from now on
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Reports the best move found so far, to be played if the deadline comes before the search ends.
+     *
+     * @param move The encoded move (see SearchableLogic.encodeMove).
+     */
+    public void offer(int move) {
+        bestMove = move;
+    }
+
+    // Return the best move offered so far, or -1 if none was
+    public int getBestMove() {
+        return bestMove;
+    }
+}
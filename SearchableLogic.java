@@ -0,0 +1,194 @@
+/**
+ * The SearchableLogic interface extends PlayableLogic with primitive, allocation-free queries
+ * for callers that ask about the board many times per move, such as AI players.
+ * A square is encoded as a single int: row * getBoardSize() + col.
+ * PlayableLogic itself is kept unchanged because the GUI is built against it.
+ */
+public interface SearchableLogic extends PlayableLogic {
+
+    // Codes for the type of disc placed by makeMove
+    int SIMPLE = 0;
+    int BOMB = 1;
+    int UNFLIPPABLE = 2;
+
+    /**
+     * Fill the given array with the valid moves of the current player.
+     *
+     * @param moves The array to fill with encoded squares; it must hold at least getBoardSize() * getBoardSize() entries.
+     * @return The number of valid moves written to the array.
+     */
+    int validMoves(int[] moves);
+
+    /**
+     * The number of discs that will be flipped
+     *
+     * @param square The encoded square where the current player would place a disc.
+     * @return The number of discs that will be flipped if a disc will be placed in the square.
+     */
+    int countFlips(int square);
+
+    /**
+     * Get the player whose turn it is.
+     *
+     * @return The current player.
+     */
+    Player getCurrentPlayer();
+
+    /**
+     * Place a disc for the current player without logging and without recording a Move.
+     * This is the search counterpart of locate_disc: every successful call must be matched by
+     * one call to unmakeMove(), in reverse order, before the game is continued with locate_disc
+     * or undoLastMove().
+     *
+     * @param square The encoded square where the disc is placed.
+     * @param discType The type of the disc: SIMPLE, BOMB or UNFLIPPABLE.
+     * @return true if the move was valid and made; false if the square is not a valid move
+     *         or the current player has no disc of that type left.
+     */
+    boolean makeMove(int square, int discType);
+
+    /**
+     * Take back the last move made by makeMove, restoring the board, the turn and
+     * the bomb and unflippable inventories exactly.
+     */
+    void unmakeMove();
+
+    /**
+     * Play a sequence of moves in one call, the fast path for replaying recorded games: no Move objects,
+     * no logging and no undo information. The position reached becomes the base position, as after
+     * loadState, so these moves (and any made before) cannot be taken back with unmakeMove.
+     *
+     * @param moves The encoded moves (see encodeMove).
+     * @param count The number of moves to play.
+     * @param flips An array to receive the number of discs every move flipped, or null.
+     * @return The number of moves played: count, or the index of the first move that is not valid.
+     */
+    int playMoves(int[] moves, int count, int[] flips);
+
+    /**
+     * Get the owner of the disc on a square.
+     *
+     * @param square The encoded square.
+     * @return 0 if the square is empty, 1 if the disc belongs to player 1, 2 if it belongs to player 2.
+     */
+    int getOwnerAt(int square);
+
+    /**
+     * Get the type of the disc on a square.
+     *
+     * @param square The encoded square.
+     * @return SIMPLE, BOMB or UNFLIPPABLE; SIMPLE for an empty square.
+     */
+    int getDiscTypeAt(int square);
+
+    /**
+     * Count the discs of one player.
+     *
+     * @param firstPlayer true to count the discs of player 1, false for player 2.
+     * @return The number of discs the player has on the board.
+     */
+    int countDiscs(boolean firstPlayer);
+
+    /**
+     * Get the Zobrist key of the current position (see Zobrist). Engines keep the key up to date
+     * incrementally, so this is cheap enough to call at every node of a search.
+     *
+     * @return The key of the board, the side to move and both players' special discs left.
+     */
+    long hashKey();
+
+    /**
+     * Set up an arbitrary position, for example one read from a file. The move history is cleared,
+     * so the position cannot be undone. The special discs left are those the players have when this
+     * is called (see Player.set_bombs_and_unflippedable); the players must be set first.
+     *
+     * @param owners The owner of every encoded square: 0 for empty, 1 for player 1, 2 for player 2.
+     * @param discTypes The disc type of every encoded square: SIMPLE, BOMB or UNFLIPPABLE (ignored for empty squares).
+     * @param firstPlayerTurn true if player 1 is to move.
+     */
+    void loadPosition(int[] owners, int[] discTypes, boolean firstPlayerTurn);
+
+    /**
+     * Take an immutable snapshot of the current position, including both players' special discs left.
+     * It costs a copy of the board's bitsets, so it can be taken at every move of the game and handed
+     * to an AI on another thread.
+     *
+     * @return The current state of the game.
+     */
+    GameState snapshot();
+
+    /**
+     * Set up the position of a snapshot, like loadPosition, and give the players the snapshot's
+     * special discs left. The players must be set first, and the board sizes must match.
+     *
+     * @param state The state to load.
+     */
+    void loadState(GameState state);
+
+    /**
+     * Create an independent engine holding the current position, for example for another search thread.
+     * The copy has its own stand-in players (see Player.copyOf) with the same special discs left,
+     * no move history, and a NoOpGameLogger.
+     *
+     * @return A new engine of the same kind, with the same board, side to move and inventories.
+     */
+    SearchableLogic copy();
+
+    /**
+     * Set the logger that receives the placement, flip, undo and winner events.
+     * Engines print to the console (ConsoleGameLogger) until another logger is set.
+     *
+     * @param logger The logger to use, for example NoOpGameLogger.INSTANCE for headless games.
+     */
+    void setLogger(GameLogger logger);
+
+    /**
+     * Encode a move (a square and a disc type) as one int, as used by the AI players.
+     *
+     * @param square The encoded square.
+     * @param discType The type of the disc: SIMPLE, BOMB or UNFLIPPABLE.
+     * @return The encoded move.
+     */
+    static int encodeMove(int square, int discType) {
+        return (square << 2) | discType;
+    }
+
+    // Return the square of an encoded move
+    static int moveSquare(int move) {
+        return move >>> 2;
+    }
+
+    // Return the disc type of an encoded move
+    static int moveType(int move) {
+        return move & 3;
+    }
+
+    /**
+     * Get the type code of a disc.
+     *
+     * @param disc The disc.
+     * @return BOMB for a BombDisc, UNFLIPPABLE for an UnflippableDisc, SIMPLE otherwise.
+     */
+    static int typeOf(Disc disc) {
+        if (disc instanceof BombDisc)
+            return BOMB;
+        if (disc instanceof UnflippableDisc)
+            return UNFLIPPABLE;
+        return SIMPLE;
+    }
+
+    /**
+     * Create a disc of the given type.
+     *
+     * @param discType The type of the disc: SIMPLE, BOMB or UNFLIPPABLE.
+     * @param owner The player who owns the disc.
+     * @return A new disc of that type.
+     */
+    static Disc createDisc(int discType, Player owner) {
+        switch (discType) {
+            case BOMB: return new BombDisc(owner);
+            case UNFLIPPABLE: return new UnflippableDisc(owner);
+            default: return new SimpleDisc(owner);
+        }
+    }
+}
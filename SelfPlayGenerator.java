@@ -0,0 +1,314 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Generates training data from self-play: many games of an AI player type against itself, played in
+ * parallel, with every position written out together with the final result of its game.
+ *
+ * Every game opens with random moves for the first plies (now and then a bomb or an unflippable disc, like
+ * OpeningBookBuilder), drawn from a generator seeded with the seed plus the number of the game, and is then
+ * played out by the AI on both sides. Games run on a thread pool, each with its own engine and players,
+ * but their positions are written in the order of the games, so the output depends only on the seed
+ * and the options, not on the number of threads, as long as the players are deterministic (like GreedyAI,
+ * the default; the searching AIs stop on a clock, so their moves depend on the machine's speed).
+ *
+ * The output is a NumPy .npy file holding one fixed-width record per position (numpy.load reads it as a
+ * structured array), written through a direct buffer in batches of BATCH_BYTES with FileChannel writes.
+ * A record is RECORD_EXTRA_BYTES + boardSize * boardSize bytes, little-endian, seen from the player to move:
+ * - board (boardSize * boardSize bytes, row-major): 0 for an empty square, 1 for a disc of the player
+ *   to move, 2 for an opponent's disc, plus 4 for a bomb or 8 for an unflippable disc;
+ * - side (1 byte): 1 if player 1 is to move, 2 if player 2 is;
+ * - bombs, unflippables (2 bytes each): the special discs left to the player to move, then to the opponent;
+ * - ply (unsigned short): the number of moves played before the position;
+ * - result (signed byte): 1 if the player to move won the game, 0 for a draw, -1 for a loss;
+ * - difference (short): the final disc difference, the player to move's discs minus the opponent's.
+ *
+ * Usage: java SelfPlayGenerator [--games N] [--threads N] [--size N] [--player AI type] [--random-plies N]
+ *                               [--seed N] [--out selfplay.npy]
+ */
+public class SelfPlayGenerator implements Closeable {
+
+    // Bytes of a record besides the board
+    static final int RECORD_EXTRA_BYTES = 10;
+    // Size of the write buffer
+    private static final int BATCH_BYTES = 1 << 22;
+    // Games submitted to the pool ahead of the one being written, per thread
+    private static final int GAMES_AHEAD_PER_THREAD = 16;
+    // Length of the .npy header, padded so the records start 64-byte aligned; large enough for any count
+    private static final int NPY_HEADER_BYTES = 256;
+
+    private final int boardSize;
+    private final String player;
+    private final int randomPlies;
+    private final FileChannel channel;
+    private final ByteBuffer batch = ByteBuffer.allocateDirect(BATCH_BYTES);
+    private long positions;
+    private long games;
+
+    /**
+     * Creates (or replaces) the output file.
+     *
+     * @param file The .npy file to write.
+     * @param boardSize The size of the board.
+     * @param player The registered AI type that plays the games.
+     * @param randomPlies The number of random opening plies of every game.
+     * @throws IOException If the file cannot be written.
+     */
+    public SelfPlayGenerator(Path file, int boardSize, String player, int randomPlies) throws IOException {
+        this.boardSize = boardSize;
+        this.player = player;
+        this.randomPlies = randomPlies;
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        // The header is written again with the final number of records by close
+        channel.write(npyHeader(0), 0);
+        channel.position(NPY_HEADER_BYTES);
+    }
+
+    /**
+     * Plays games and writes their positions.
+     *
+     * @param count The number of games to play.
+     * @param threads The number of games played at the same time.
+     * @param seed The seed of the first game; every game uses the next seed.
+     * @throws IOException If the file cannot be written.
+     * @throws InterruptedException If the thread is interrupted while waiting for the games.
+     */
+    public void play(int count, int threads, long seed) throws IOException, InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            // A bounded window of games in flight keeps the memory flat however many games are played
+            ArrayDeque<Future<byte[]>> window = new ArrayDeque<>();
+            int submitted = 0;
+            while (submitted < count || !window.isEmpty()) {
+                while (submitted < count && window.size() < threads * GAMES_AHEAD_PER_THREAD) {
+                    long gameSeed = seed + submitted++;
+                    window.add(executor.submit(() -> playGame(new SplittableRandom(gameSeed))));
+                }
+                byte[] records;
+                try {
+                    records = window.remove().get();
+                } catch (ExecutionException e) {
+                    throw new RuntimeException("Self-play game failed", e.getCause());
+                }
+                write(records);
+                positions += records.length / recordBytes(boardSize);
+                games++;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Plays one game: random opening moves, then the AI on both sides.
+     *
+     * @param random The generator of the opening moves.
+     * @return The records of all the positions of the game in which the player to move had a valid move.
+     */
+    private byte[] playGame(SplittableRandom random) {
+        SearchableLogic game = boardSize == 8 ? new BitboardGameLogic() : new GameLogic(boardSize);
+        game.setLogger(NoOpGameLogger.INSTANCE);
+        AIPlayer first = AIPlayer.createAIPlayer(player, true);
+        AIPlayer second = AIPlayer.createAIPlayer(player, false);
+        game.setPlayers(first, second);
+        game.reset();
+        int cells = boardSize * boardSize;
+        int width = recordBytes(boardSize);
+        // A game has fewer moves than squares
+        ByteBuffer records = ByteBuffer.allocate(cells * width).order(ByteOrder.LITTLE_ENDIAN);
+        boolean[] moverIsFirst = new boolean[cells];
+        int[] valid = new int[cells];
+        int ply = 0;
+        while (true) {
+            int count = game.validMoves(valid);
+            if (count == 0)
+                break;
+            moverIsFirst[ply] = game.isFirstPlayerTurn();
+            writePosition(game, ply, records);
+            Player current = game.getCurrentPlayer();
+            int square, type;
+            if (ply < randomPlies) {
+                square = valid[random.nextInt(count)];
+                type = OpeningBookBuilder.randomDiscType(current, random);
+            } else {
+                Move move = ((AIPlayer) current).makeMove(game);
+                square = move.position().row() * boardSize + move.position().col();
+                type = SearchableLogic.typeOf(move.disc());
+            }
+            if (!game.locate_disc(Position.of(square / boardSize, square % boardSize),
+                    SearchableLogic.createDisc(type, current)))
+                throw new IllegalStateException(player + " made an invalid move: " + square);
+            ply++;
+        }
+        // Fill in the result of every position now that the game is over
+        int difference = game.countDiscs(true) - game.countDiscs(false);
+        for (int k = 0; k < ply; k++) {
+            int mine = moverIsFirst[k] ? difference : -difference;
+            records.put(k * width + cells + 7, (byte) Integer.signum(mine));
+            records.putShort(k * width + cells + 8, (short) mine);
+        }
+        return Arrays.copyOf(records.array(), ply * width);
+    }
+
+    /**
+     * Appends the record of a position, without its result, to a buffer.
+     *
+     * @param game The engine holding the position.
+     * @param ply The number of moves played before the position.
+     * @param records The buffer, little-endian.
+     */
+    private void writePosition(SearchableLogic game, int ply, ByteBuffer records) {
+        int me = game.isFirstPlayerTurn() ? 1 : 2;
+        for (int square = 0; square < boardSize * boardSize; square++) {
+            int owner = game.getOwnerAt(square);
+            int value = owner == 0 ? 0 : owner == me ? 1 : 2;
+            if (owner != 0) {
+                int type = game.getDiscTypeAt(square);
+                value += type == SearchableLogic.BOMB ? 4 : type == SearchableLogic.UNFLIPPABLE ? 8 : 0;
+            }
+            records.put((byte) value);
+        }
+        Player mover = game.getCurrentPlayer();
+        Player opponent = me == 1 ? game.getSecondPlayer() : game.getFirstPlayer();
+        records.put((byte) me);
+        records.put((byte) mover.getNumber_of_bombs());
+        records.put((byte) opponent.getNumber_of_bombs());
+        records.put((byte) mover.getNumber_of_unflippedable());
+        records.put((byte) opponent.getNumber_of_unflippedable());
+        records.putShort((short) ply);
+        // The result and the difference are filled in at the end of the game
+        records.put((byte) 0);
+        records.putShort((short) 0);
+    }
+
+    // Copy records into the write buffer, writing it to the file whenever it is full
+    private void write(byte[] records) throws IOException {
+        int offset = 0;
+        while (offset < records.length) {
+            int length = Math.min(batch.remaining(), records.length - offset);
+            batch.put(records, offset, length);
+            offset += length;
+            if (!batch.hasRemaining())
+                flushBatch();
+        }
+    }
+
+    // Write the buffered records to the file
+    private void flushBatch() throws IOException {
+        batch.flip();
+        while (batch.hasRemaining()) {
+            channel.write(batch);
+        }
+        batch.clear();
+    }
+
+    /**
+     * Builds the .npy header: the magic string, version 1.0, and a dictionary describing the records
+     * as a structured array of the given number of records, padded with spaces to NPY_HEADER_BYTES.
+     *
+     * @param records The number of records.
+     * @return The header, ready to be written.
+     */
+    private ByteBuffer npyHeader(long records) {
+        String dictionary = "{'descr': [('board', 'u1', (" + boardSize * boardSize + ",)), ('side', 'u1'), "
+                + "('bombs', 'u1', (2,)), ('unflippables', 'u1', (2,)), ('ply', '<u2'), ('result', 'i1'), "
+                + "('difference', '<i2')], 'fortran_order': False, 'shape': (" + records + ",), }";
+        int length = NPY_HEADER_BYTES - 10;
+        StringBuilder header = new StringBuilder(dictionary);
+        while (header.length() < length - 1) {
+            header.append(' ');
+        }
+        header.append('\n');
+        ByteBuffer buffer = ByteBuffer.allocate(NPY_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put((byte) 0x93).put("NUMPY".getBytes(StandardCharsets.US_ASCII)).put((byte) 1).put((byte) 0);
+        buffer.putShort((short) length);
+        buffer.put(header.toString().getBytes(StandardCharsets.US_ASCII));
+        return buffer.flip();
+    }
+
+    /**
+     * Returns the length of a record.
+     *
+     * @param boardSize The size of the board.
+     * @return The number of bytes of one position.
+     */
+    static int recordBytes(int boardSize) {
+        return boardSize * boardSize + RECORD_EXTRA_BYTES;
+    }
+
+    // Return the number of positions written so far
+    public long getPositions() {
+        return positions;
+    }
+
+    // Return the number of games played so far
+    public long getGames() {
+        return games;
+    }
+
+    /**
+     * Writes the buffered records and the final header, and closes the file.
+     *
+     * @throws IOException If the file cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBatch();
+            channel.write(npyHeader(positions), 0);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Generates training data from the command line; see the class comment for the options.
+     *
+     * @param args The command-line arguments.
+     * @throws IOException If the file cannot be written.
+     * @throws InterruptedException If the thread is interrupted while waiting for the games.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        AIPlayer.registerAllAIPlayers();
+        int games = 10000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int size = 8;
+        String player = "GreedyAI";
+        int randomPlies = 8;
+        long seed = 1;
+        Path out = Path.of("selfplay.npy");
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--games": games = Integer.parseInt(args[++i]); break;
+                case "--threads": threads = Integer.parseInt(args[++i]); break;
+                case "--size": size = Integer.parseInt(args[++i]); break;
+                case "--player": player = args[++i]; break;
+                case "--random-plies": randomPlies = Integer.parseInt(args[++i]); break;
+                case "--seed": seed = Long.parseLong(args[++i]); break;
+                case "--out": out = Path.of(args[++i]); break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        long start = System.nanoTime();
+        try (SelfPlayGenerator generator = new SelfPlayGenerator(out, size, player, randomPlies)) {
+            generator.play(games, threads, seed);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%d games, %d positions written to %s in %.1f s: %.0f positions/s%n", generator.getGames(),
+                    generator.getPositions(), out, seconds, generator.getPositions() / seconds);
+        }
+    }
+}
@@ -0,0 +1,301 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A headless runner that plays matches between registered AI player types, without the GUI.
+ * Games run in parallel on a thread pool. Every game gets its own engine (with a NoOpGameLogger)
+ * and its own newly created players, so nothing that belongs to one game, such as Player.wins,
+ * is touched by another thread.
+ *
+ * In a round robin every pair of players meets; in a gauntlet the first player meets each of the others.
+ * Each pairing plays the given number of games, with the players changing colours every game.
+ * The report gives games per second, the win/draw/loss record of every pairing, and an Elo rating
+ * of every player, fitted to all the results at once.
+ *
+ * With a record file set, every game is also saved to it as a GameRecord, in the order the games were
+ * scheduled, with its number in the tournament as its seed; replay the file with GameRecordReader.
+ *
+ * Usage: java Tournament [--games N] [--threads N] [--gauntlet] [--engine bitboard|gamelogic] [--size N]
+ *                        [--record games.bin] [AI type...]
+ * Without AI types, all the registered types play. The time budget of the searching players is set
+ * with their usual system properties, for example -Dreversi.minimax.timeMs=100.
+ * A board size other than 8 plays on GameLogic, since BitboardGameLogic only has the 8x8 board.
+ */
+public class Tournament {
+
+    // Elo points per factor of 10 in playing strength
+    private static final double ELO_SCALE = 400;
+
+    private final List<String> players;
+    private final int gamesPerPairing;
+    private final int threads;
+    private final boolean gauntlet;
+    private final boolean bitboard;
+    private final int boardSize;
+    // Results from the point of view of the row player: wins, draws and losses against the column player
+    private final int[][] wins;
+    private final int[][] draws;
+    private final int[][] losses;
+    // The file to save the games to, or null
+    private Path recordFile;
+    private long elapsedNanos;
+
+    /**
+     * Constructs a tournament.
+     *
+     * @param players The registered AI player types taking part (at least 2).
+     * @param gamesPerPairing The number of games every pairing plays.
+     * @param threads The number of games played at the same time.
+     * @param gauntlet true to pair the first player with each of the others, false for a round robin.
+     * @param bitboard true to play on BitboardGameLogic, false on GameLogic.
+     * @param boardSize The size of the board; BitboardGameLogic is only used for 8.
+     */
+    public Tournament(List<String> players, int gamesPerPairing, int threads, boolean gauntlet, boolean bitboard, int boardSize) {
+        if (players.size() < 2)
+            throw new IllegalArgumentException("A tournament needs at least 2 players: " + players);
+        this.players = new ArrayList<>(players);
+        this.gamesPerPairing = gamesPerPairing;
+        this.threads = threads;
+        this.gauntlet = gauntlet;
+        this.bitboard = bitboard && boardSize == 8;
+        this.boardSize = boardSize;
+        int n = players.size();
+        this.wins = new int[n][n];
+        this.draws = new int[n][n];
+        this.losses = new int[n][n];
+    }
+
+    /**
+     * Sets the file that run saves every game to (see GameRecordWriter).
+     *
+     * @param file The file, replaced if it exists; or null to save nothing.
+     */
+    public void setRecordFile(Path file) {
+        this.recordFile = file;
+    }
+
+    /**
+     * Plays all the games of the tournament and collects the results.
+     *
+     * @throws InterruptedException If the thread is interrupted while waiting for the games.
+     * @throws IOException If the record file cannot be written.
+     */
+    public void run() throws InterruptedException, IOException {
+        // The games of every pairing, as pairs of player indices (first player first)
+        List<int[]> games = new ArrayList<>();
+        for (int i = 0; i < players.size(); i++) {
+            for (int j = i + 1; j < players.size(); j++) {
+                if (gauntlet && i > 0)
+                    break;
+                for (int g = 0; g < gamesPerPairing; g++) {
+                    games.add(g % 2 == 0 ? new int[]{i, j} : new int[]{j, i});
+                }
+            }
+        }
+
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        GameRecordWriter writer = recordFile == null ? null : new GameRecordWriter(recordFile);
+        try {
+            List<Future<GameRecord>> results = new ArrayList<>();
+            for (int k = 0; k < games.size(); k++) {
+                int[] game = games.get(k);
+                long number = k;
+                results.add(executor.submit(() -> playGame(players.get(game[0]), players.get(game[1]), number)));
+            }
+            // The results are only counted (and written) here, on this thread, so the tables need no locking
+            for (int k = 0; k < games.size(); k++) {
+                int first = games.get(k)[0], second = games.get(k)[1];
+                GameRecord record;
+                try {
+                    record = results.get(k).get();
+                } catch (ExecutionException e) {
+                    throw new RuntimeException("Game " + players.get(first) + " - " + players.get(second) + " failed", e.getCause());
+                }
+                if (writer != null)
+                    writer.write(record);
+                int winner = record.getWinner();
+                if (winner == 1) {
+                    wins[first][second]++;
+                    losses[second][first]++;
+                } else if (winner == 2) {
+                    wins[second][first]++;
+                    losses[first][second]++;
+                } else {
+                    draws[first][second]++;
+                    draws[second][first]++;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+            if (writer != null)
+                writer.close();
+        }
+        elapsedNanos = System.nanoTime() - start;
+    }
+
+    /**
+     * Plays one game between two AI player types on a new engine.
+     *
+     * @param firstType The AI type of player 1.
+     * @param secondType The AI type of player 2.
+     * @param number The number of the game in the tournament, recorded as its seed.
+     * @return The record of the game.
+     */
+    private GameRecord playGame(String firstType, String secondType, long number) {
+        SearchableLogic game = bitboard ? new BitboardGameLogic() : new GameLogic(boardSize);
+        game.setLogger(NoOpGameLogger.INSTANCE);
+        AIPlayer first = AIPlayer.createAIPlayer(firstType, true);
+        AIPlayer second = AIPlayer.createAIPlayer(secondType, false);
+        game.setPlayers(first, second);
+        game.reset();
+        int[] moves = new int[boardSize * boardSize];
+        int moveCount = 0;
+        while (!game.isGameFinished()) {
+            AIPlayer player = (AIPlayer) game.getCurrentPlayer();
+            Move move = player.makeMove(game);
+            if (move == null || !game.locate_disc(move.position(), move.disc()))
+                throw new IllegalStateException(player.getClass().getSimpleName() + " made an invalid move: "
+                        + (move == null ? "none" : move.position()));
+            moves[moveCount++] = SearchableLogic.encodeMove(move.position().row() * boardSize + move.position().col(),
+                    SearchableLogic.typeOf(move.disc()));
+        }
+        return new GameRecord(boardSize, firstType, secondType, number,
+                game.countDiscs(true), game.countDiscs(false), moves, moveCount);
+    }
+
+    /**
+     * Fits an Elo rating to every player from all the results (a Bradley-Terry model, fitted by the
+     * minorization-maximization iteration). Every pairing counts one extra draw, so a player who won
+     * or lost every game still gets a finite rating. The ratings are shifted to average 0.
+     *
+     * @return The Elo rating of every player, in the order of the player list.
+     */
+    public double[] eloRatings() {
+        int n = players.size();
+        double[] strength = new double[n];
+        Arrays.fill(strength, 1);
+        for (int iteration = 0; iteration < 1000; iteration++) {
+            double[] next = new double[n];
+            for (int i = 0; i < n; i++) {
+                double score = 0, denominator = 0;
+                for (int j = 0; j < n; j++) {
+                    int games = wins[i][j] + draws[i][j] + losses[i][j];
+                    if (j == i || games == 0)
+                        continue;
+                    score += wins[i][j] + 0.5 * draws[i][j] + 0.5;
+                    denominator += (games + 1) / (strength[i] + strength[j]);
+                }
+                next[i] = denominator == 0 ? strength[i] : score / denominator;
+            }
+            // Only the ratios matter; keep the product at 1 so the values cannot drift off
+            double logMean = 0;
+            for (int i = 0; i < n; i++) {
+                logMean += Math.log(next[i]) / n;
+            }
+            for (int i = 0; i < n; i++) {
+                next[i] /= Math.exp(logMean);
+            }
+            strength = next;
+        }
+        double[] elo = new double[n];
+        double mean = 0;
+        for (int i = 0; i < n; i++) {
+            elo[i] = ELO_SCALE * Math.log10(strength[i]);
+            mean += elo[i] / n;
+        }
+        for (int i = 0; i < n; i++) {
+            elo[i] -= mean;
+        }
+        return elo;
+    }
+
+    /**
+     * Prints the speed, the record of every pairing and the Elo ratings.
+     *
+     * @param out The stream to print to.
+     */
+    public void printReport(PrintStream out) {
+        int games = 0;
+        for (int i = 0; i < players.size(); i++) {
+            for (int j = i + 1; j < players.size(); j++) {
+                games += wins[i][j] + draws[i][j] + losses[i][j];
+            }
+        }
+        double seconds = elapsedNanos / 1e9;
+        out.printf("%d games in %.2f s on %d threads: %.1f games/s%n", games, seconds, threads, games / seconds);
+        out.println();
+        out.println("Pairing                                     W     D     L");
+        for (int i = 0; i < players.size(); i++) {
+            for (int j = i + 1; j < players.size(); j++) {
+                if (wins[i][j] + draws[i][j] + losses[i][j] == 0)
+                    continue;
+                out.printf("%-20s - %-20s %5d %5d %5d%n", players.get(i), players.get(j), wins[i][j], draws[i][j], losses[i][j]);
+            }
+        }
+        out.println();
+        out.println("Player                  Elo");
+        double[] elo = eloRatings();
+        for (int i = 0; i < players.size(); i++) {
+            out.printf("%-20s %+6.0f%n", players.get(i), elo[i]);
+        }
+    }
+
+    // Return the number of games the first player won against the second
+    public int getWins(String player, String opponent) {
+        return wins[players.indexOf(player)][players.indexOf(opponent)];
+    }
+
+    // Return the number of games drawn between two players
+    public int getDraws(String player, String opponent) {
+        return draws[players.indexOf(player)][players.indexOf(opponent)];
+    }
+
+    // Return the number of games the first player lost against the second
+    public int getLosses(String player, String opponent) {
+        return losses[players.indexOf(player)][players.indexOf(opponent)];
+    }
+
+    /**
+     * Runs a tournament from the command line; see the class comment for the options.
+     *
+     * @param args The command-line arguments.
+     * @throws InterruptedException If the thread is interrupted while waiting for the games.
+     * @throws IOException If the record file cannot be written.
+     */
+    public static void main(String[] args) throws InterruptedException, IOException {
+        AIPlayer.registerAllAIPlayers();
+        int games = 100;
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean gauntlet = false;
+        boolean bitboard = true;
+        int size = 8;
+        Path record = null;
+        List<String> players = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--games": games = Integer.parseInt(args[++i]); break;
+                case "--threads": threads = Integer.parseInt(args[++i]); break;
+                case "--gauntlet": gauntlet = true; break;
+                case "--engine": bitboard = !args[++i].equals("gamelogic"); break;
+                case "--size": size = Integer.parseInt(args[++i]); break;
+                case "--record": record = Path.of(args[++i]); break;
+                default: players.add(args[i]);
+            }
+        }
+        if (players.isEmpty())
+            players.addAll(AIPlayer.getAIPlayerTypes());
+        Tournament tournament = new Tournament(players, games, threads, gauntlet, bitboard, size);
+        tournament.setRecordFile(record);
+        tournament.run();
+        tournament.printReport(System.out);
+    }
+}
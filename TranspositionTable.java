@@ -0,0 +1,153 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A fixed-size transposition table for the AI search, stored off the Java heap.
+ * The table lives in direct ByteBuffers, so even a table of several GB adds nothing to the heap
+ * the garbage collector has to scan. Entries are grouped in buckets of 4 (64 bytes, one cache line).
+ * Direct memory is limited by -XX:MaxDirectMemorySize (by default the maximum heap size),
+ * so raise that limit for tables larger than the heap.
+ *
+ * Each entry is two longs: the data, and the Zobrist key XORed with the data. Slots are written and
+ * read without locks by any number of threads; an entry torn by two concurrent writes fails the
+ * XOR check and reads as a miss, so a search never trusts a corrupt entry.
+ *
+ * When a bucket is full, the new entry replaces the entry from the oldest search, and among entries
+ * of the same search the one searched to the smallest depth.
+ */
+public class TranspositionTable {
+
+    // Bound types stored with a score; 0 marks an empty slot
+    public static final int EXACT = 1;
+    public static final int LOWER = 2;
+    public static final int UPPER = 3;
+
+    private static final int ENTRY_BYTES = 16;
+    private static final int BUCKET_ENTRIES = 4;
+    private static final int BUCKET_BYTES = ENTRY_BYTES * BUCKET_ENTRIES;
+    // Largest single buffer; larger tables are split over several buffers
+    private static final int BUFFER_BYTES = 1 << 30;
+
+    private final ByteBuffer[] buffers;
+    private final long bucketMask;
+    private final int bucketsPerBuffer;
+    // Generation of the current search, stored in each entry for the replacement policy
+    private volatile int age = 0;
+
+    /**
+     * Allocates a table of the given size; the number of buckets is rounded down to a power of two.
+     *
+     * @param megabytes The size of the table in MB (at least 1).
+     */
+    public TranspositionTable(int megabytes) {
+        if (megabytes < 1)
+            throw new IllegalArgumentException("Table size must be at least 1 MB: " + megabytes);
+        long buckets = Long.highestOneBit((long) megabytes * 1024 * 1024 / BUCKET_BYTES);
+        bucketMask = buckets - 1;
+        bucketsPerBuffer = (int) Math.min(buckets, BUFFER_BYTES / BUCKET_BYTES);
+        buffers = new ByteBuffer[(int) (buckets / bucketsPerBuffer)];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = ByteBuffer.allocateDirect(bucketsPerBuffer * BUCKET_BYTES).order(ByteOrder.nativeOrder());
+        }
+    }
+
+    /**
+     * Starts a new search: entries stored from now on are younger than all the existing ones.
+     */
+    public void newSearch() {
+        age = (age + 1) & 0x3F;
+    }
+
+    /**
+     * Empties the table.
+     */
+    public void clear() {
+        for (ByteBuffer buffer : buffers) {
+            for (int i = 0; i < buffer.capacity(); i += 8) {
+                buffer.putLong(i, 0);
+            }
+        }
+    }
+
+    /**
+     * Looks a position up.
+     *
+     * @param key The Zobrist key of the position.
+     * @return The packed entry data (read it with move, score, depth and bound), or 0 if the position is not stored.
+     */
+    public long probe(long key) {
+        long bucket = key & bucketMask;
+        ByteBuffer buffer = buffers[(int) (bucket / bucketsPerBuffer)];
+        int offset = (int) (bucket % bucketsPerBuffer) * BUCKET_BYTES;
+        for (int i = 0; i < BUCKET_ENTRIES; i++, offset += ENTRY_BYTES) {
+            long data = buffer.getLong(offset + 8);
+            if ((buffer.getLong(offset) ^ data) == key && data != 0)
+                return data;
+        }
+        return 0;
+    }
+
+    /**
+     * Stores the result of a search of a position.
+     *
+     * @param key The Zobrist key of the position.
+     * @param move The best move found (an encoded move), or -1 if none.
+     * @param score The score of the position.
+     * @param depth The depth the position was searched to.
+     * @param bound EXACT, LOWER (the score is at least this) or UPPER (the score is at most this).
+     */
+    public void store(long key, int move, int score, int depth, int bound) {
+        long bucket = key & bucketMask;
+        ByteBuffer buffer = buffers[(int) (bucket / bucketsPerBuffer)];
+        int base = (int) (bucket % bucketsPerBuffer) * BUCKET_BYTES;
+        int currentAge = age;
+        int target = base;
+        int worst = Integer.MAX_VALUE;
+        for (int i = 0, offset = base; i < BUCKET_ENTRIES; i++, offset += ENTRY_BYTES) {
+            long data = buffer.getLong(offset + 8);
+            if (data == 0 || (buffer.getLong(offset) ^ data) == key) {
+                target = offset;  // An empty slot or the same position: use it
+                break;
+            }
+            // Older searches count as shallower, so their entries are replaced first
+            int entryAge = (int) (data >>> 58);
+            int value = depth(data) - 4 * ((currentAge - entryAge) & 0x3F);
+            if (value < worst) {
+                worst = value;
+                target = offset;
+            }
+        }
+        long data = ((move + 1) & 0xFFFFL)
+                | ((score & 0xFFFFFFFFL) << 16)
+                | ((long) (depth & 0xFF) << 48)
+                | ((long) bound << 56)
+                | ((long) currentAge << 58);
+        buffer.putLong(target + 8, data);
+        buffer.putLong(target, key ^ data);
+    }
+
+    // Return the move of an entry, or -1 if none was stored
+    public static int move(long data) {
+        return (int) (data & 0xFFFF) - 1;
+    }
+
+    // Return the score of an entry
+    public static int score(long data) {
+        return (int) (data >>> 16);
+    }
+
+    // Return the depth of an entry
+    public static int depth(long data) {
+        return (int) ((data >>> 48) & 0xFF);
+    }
+
+    // Return the bound type of an entry: EXACT, LOWER or UPPER
+    public static int bound(long data) {
+        return (int) ((data >>> 56) & 0x3);
+    }
+
+    // Return the size of the table in bytes
+    public long sizeInBytes() {
+        return (bucketMask + 1) * BUCKET_BYTES;
+    }
+}
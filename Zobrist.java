@@ -0,0 +1,110 @@
+import java.util.SplittableRandom;
+
+/**
+ * Zobrist hashing of game positions.
+ * A position's key is the XOR of one random number per occupied square (for its owner and disc type),
+ * one for the side to move, and one for each player's number of bombs and unflippable discs left.
+ * Keys can then be updated incrementally: placing, flipping or removing a disc XORs in and out
+ * the numbers of the squares that changed.
+ * The random numbers come from a fixed seed, so the same position has the same key in every run
+ * (the opening book relies on this).
+ */
+public final class Zobrist {
+
+    // The largest count of special discs that has its own key; larger counts share the last one
+    private static final int MAX_COUNT = 15;
+    // Tables already built, indexed by board size
+    private static final Zobrist[] TABLES = new Zobrist[64];
+
+    // Keys per square: index square * 6 + (owner - 1) * 3 + discType
+    private final long[] squareKeys;
+    // Key of "player 2 to move"
+    private final long sideKey;
+    // Keys per player (0 or 1) and number of bombs / unflippable discs left
+    private final long[][] bombKeys = new long[2][MAX_COUNT + 1];
+    private final long[][] unflippableKeys = new long[2][MAX_COUNT + 1];
+
+    /**
+     * Builds the keys for a board size.
+     *
+     * @param boardSize The size of the board.
+     */
+    private Zobrist(int boardSize) {
+        SplittableRandom random = new SplittableRandom(0x5EED_0F_2EE5L + boardSize);
+        squareKeys = new long[boardSize * boardSize * 6];
+        for (int i = 0; i < squareKeys.length; i++) {
+            squareKeys[i] = random.nextLong();
+        }
+        sideKey = random.nextLong();
+        for (int p = 0; p < 2; p++) {
+            for (int c = 0; c <= MAX_COUNT; c++) {
+                bombKeys[p][c] = random.nextLong();
+                unflippableKeys[p][c] = random.nextLong();
+            }
+        }
+    }
+
+    /**
+     * Returns the keys for a board size; the keys are built on first use and then shared.
+     *
+     * @param boardSize The size of the board.
+     * @return The Zobrist keys of that board size.
+     */
+    public static synchronized Zobrist forBoardSize(int boardSize) {
+        if (TABLES[boardSize] == null)
+            TABLES[boardSize] = new Zobrist(boardSize);
+        return TABLES[boardSize];
+    }
+
+    /**
+     * Gets the key of a disc on a square.
+     *
+     * @param square The encoded square.
+     * @param owner 1 for player 1, 2 for player 2.
+     * @param discType SIMPLE, BOMB or UNFLIPPABLE.
+     * @return The key to XOR in when the disc appears and out when it disappears.
+     */
+    public long disc(int square, int owner, int discType) {
+        return squareKeys[square * 6 + (owner - 1) * 3 + discType];
+    }
+
+    // Return the key XORed in while player 2 is to move
+    public long side() {
+        return sideKey;
+    }
+
+    // Return the key of a player (1 or 2) having the given number of bombs left
+    public long bombs(int owner, int count) {
+        return bombKeys[owner - 1][Math.min(count, MAX_COUNT)];
+    }
+
+    // Return the key of a player (1 or 2) having the given number of unflippable discs left
+    public long unflippables(int owner, int count) {
+        return unflippableKeys[owner - 1][Math.min(count, MAX_COUNT)];
+    }
+
+    /**
+     * Computes the key of the current position of an engine from scratch.
+     *
+     * @param logic The engine.
+     * @return The Zobrist key of its position.
+     */
+    public long hash(SearchableLogic logic) {
+        int squares = logic.getBoardSize() * logic.getBoardSize();
+        long key = 0;
+        for (int square = 0; square < squares; square++) {
+            int owner = logic.getOwnerAt(square);
+            if (owner != 0)
+                key ^= disc(square, owner, logic.getDiscTypeAt(square));
+        }
+        if (!logic.isFirstPlayerTurn())
+            key ^= sideKey;
+        Player player1 = logic.getFirstPlayer();
+        Player player2 = logic.getSecondPlayer();
+        if (player1 != null && player2 != null) {
+            key ^= bombs(1, player1.getNumber_of_bombs()) ^ unflippables(1, player1.getNumber_of_unflippedable());
+            key ^= bombs(2, player2.getNumber_of_bombs()) ^ unflippables(2, player2.getNumber_of_unflippedable());
+        }
+        return key;
+    }
+}